@@ -1,16 +1,33 @@
 package vn.edu.uit;
 
 import org.jetbrains.annotations.NotNull;
+import org.semanticweb.HermiT.ReasonerFactory;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
 import vn.edu.uit.ontologymanager.OntologyManager;
+import vn.edu.uit.ontologymanager.OntologyWatcher;
+import vn.edu.uit.ontologymanager.TaxonomyReasonerFactory;
+import vn.edu.uit.server.SelectorServer;
 import vn.edu.uit.server.Server;
 
 import java.io.File;
 import java.net.URL;
 import java.nio.file.Paths;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static vn.edu.uit.ontologymanager.OntologyManager.DEFAULT_REASONER_POOL_SIZE;
+import static vn.edu.uit.server.SelectorServer.DEFAULT_BUFFER_SIZE;
+import static vn.edu.uit.server.SelectorServer.DEFAULT_POOLED_BUFFERS;
+import static vn.edu.uit.server.Server.DEFAULT_COMPRESSION_THRESHOLD;
+import static vn.edu.uit.server.Server.DEFAULT_IDLE_TIMEOUT;
+import static vn.edu.uit.server.Server.DEFAULT_MAX_FRAME_LENGTH;
+import static vn.edu.uit.server.Server.DEFAULT_MAX_PIPELINED_REQUESTS;
+import static vn.edu.uit.server.Server.DEFAULT_MAX_REQUESTS_PER_CONNECTION;
 import static vn.edu.uit.server.Server.DEFAULT_PORT;
+import static vn.edu.uit.server.Server.DEFAULT_QUEUE_CAPACITY;
+import static vn.edu.uit.server.Server.DEFAULT_STREAM_CHUNK_SIZE;
+import static vn.edu.uit.server.Server.DEFAULT_WORKERS;
 
 public class App {
 
@@ -23,12 +40,77 @@ public class App {
             final URL resource = loader.getResource("rice.owl");
             final File file = Paths.get(resource.toURI()).toFile();
 
-            final OntologyManager manager = new OntologyManager(file);
+            // An empty ontology.snapshot property turns the snapshot file off.
+            final String snapshotPath = System.getProperty("ontology.snapshot", "rice.snapshot");
+            final OWLReasonerFactory reasonerFactory = createReasonerFactory(System.getProperty("ontology.reasoner", "hermit"));
+            final int reasonerPoolSize = Integer.getInteger("ontology.reasonerPoolSize", DEFAULT_REASONER_POOL_SIZE);
+            final boolean warmUpReasonerPool = Boolean.getBoolean("ontology.reasonerPoolWarmUp");
+            final OntologyWatcher.Loader ontologyLoader = () -> new OntologyManager(file,
+                    snapshotPath.isEmpty() ? null : new File(snapshotPath), reasonerFactory, reasonerPoolSize, warmUpReasonerPool);
 
-            final Server server = new Server(manager, DEFAULT_PORT);
-            server.run();
+            // Changes of the ontology file are loaded while the server keeps answering, unless ontology.watch is false.
+            final Supplier<OntologyManager> manager;
+            if (Boolean.parseBoolean(System.getProperty("ontology.watch", "true"))) {
+                final OntologyWatcher watcher = new OntologyWatcher(file, ontologyLoader);
+                watcher.start();
+                manager = watcher;
+            } else {
+                final OntologyManager ontologyManager = ontologyLoader.load();
+                manager = () -> ontologyManager;
+            }
+
+            final int port = Integer.getInteger("server.port", DEFAULT_PORT);
+            final int workers = Integer.getInteger("server.workers", DEFAULT_WORKERS);
+            final boolean keepAlive = Boolean.getBoolean("server.keepAlive");
+            final int idleTimeout = Integer.getInteger("server.idleTimeout", DEFAULT_IDLE_TIMEOUT);
+            final int maxRequests = Integer.getInteger("server.maxRequestsPerConnection", DEFAULT_MAX_REQUESTS_PER_CONNECTION);
+            final int maxPipelined = Integer.getInteger("server.maxPipelinedRequests", DEFAULT_MAX_PIPELINED_REQUESTS);
+            final int compressionThreshold = Integer.getInteger("server.compressionThreshold", DEFAULT_COMPRESSION_THRESHOLD);
+            final int streamChunkSize = Integer.getInteger("server.streamChunkSize", DEFAULT_STREAM_CHUNK_SIZE);
+            final int maxFrameLength = Integer.getInteger("server.maxFrameLength", DEFAULT_MAX_FRAME_LENGTH);
+
+            if (System.getProperty("server.transport", "blocking").equals("selector")) {
+                final SelectorServer server = new SelectorServer.Builder(manager, port)
+                        .workers(workers)
+                        .keepAlive(keepAlive)
+                        .idleTimeout(idleTimeout)
+                        .maxRequestsPerConnection(maxRequests)
+                        .maxPipelinedRequests(maxPipelined)
+                        .compressionThreshold(compressionThreshold)
+                        .streamChunkSize(streamChunkSize)
+                        .maxFrameLength(maxFrameLength)
+                        .bufferSize(Integer.getInteger("server.bufferSize", DEFAULT_BUFFER_SIZE))
+                        .pooledBuffers(Integer.getInteger("server.pooledBuffers", DEFAULT_POOLED_BUFFERS))
+                        .build();
+                server.run();
+            } else {
+                final Server server = new Server.Builder(manager, port)
+                        .workers(workers)
+                        .keepAlive(keepAlive)
+                        .idleTimeout(idleTimeout)
+                        .maxRequestsPerConnection(maxRequests)
+                        .maxPipelinedRequests(maxPipelined)
+                        .compressionThreshold(compressionThreshold)
+                        .streamChunkSize(streamChunkSize)
+                        .maxFrameLength(maxFrameLength)
+                        .queueCapacity(Integer.getInteger("server.queueCapacity", DEFAULT_QUEUE_CAPACITY))
+                        .build();
+                server.run();
+            }
         } catch (final Exception e) {
             LOGGER.log(Level.SEVERE, e.toString(), e);
         }
     }
+
+    @NotNull
+    private static OWLReasonerFactory createReasonerFactory(@NotNull final String name) {
+        switch (name) {
+            case "hermit":
+                return new ReasonerFactory();
+            case "taxonomy":
+                return new TaxonomyReasonerFactory();
+            default:
+                throw new IllegalArgumentException("Unknown reasoner: " + name);
+        }
+    }
 }
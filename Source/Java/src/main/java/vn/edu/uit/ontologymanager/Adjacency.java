@@ -0,0 +1,55 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+// One direction of a relation in compressed sparse row form. The sorted targets of a source are
+// targets[offsets[source]] up to targets[offsets[source + 1]].
+final class Adjacency {
+
+    @NotNull
+    private final int[] offsets;
+
+    @NotNull
+    private final int[] targets;
+
+    Adjacency(@NotNull final int[][] lists) {
+        offsets = new int[lists.length + 1];
+        for (int source = 0; source < lists.length; ++source) offsets[source + 1] = offsets[source] + lists[source].length;
+
+        targets = new int[offsets[lists.length]];
+        for (int source = 0; source < lists.length; ++source)
+            System.arraycopy(lists[source], 0, targets, offsets[source], lists[source].length);
+    }
+
+    private Adjacency(@NotNull final int[] offsets, @NotNull final int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    int count(final int source) {
+        return offsets[source + 1] - offsets[source];
+    }
+
+    @NotNull
+    int[] get(final int source) {
+        return Arrays.copyOfRange(targets, offsets[source], offsets[source + 1]);
+    }
+
+    // Sources are visited in order, so the inverted target lists come out sorted as well.
+    @NotNull
+    Adjacency invert(final int targetCount) {
+        final int[] invertedOffsets = new int[targetCount + 1];
+        for (final int target : targets) ++invertedOffsets[target + 1];
+        for (int target = 0; target < targetCount; ++target) invertedOffsets[target + 1] += invertedOffsets[target];
+
+        final int[] positions = Arrays.copyOf(invertedOffsets, targetCount);
+        final int[] invertedTargets = new int[targets.length];
+        for (int source = 0; source + 1 < offsets.length; ++source)
+            for (int index = offsets[source]; index < offsets[source + 1]; ++index)
+                invertedTargets[positions[targets[index]]++] = source;
+
+        return new Adjacency(invertedOffsets, invertedTargets);
+    }
+}
@@ -0,0 +1,59 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+// Values of one data property for every individual. Each distinct literal is stored once in a sorted
+// dictionary, individuals refer to it by literal id, and the inverted lists give the individuals holding a literal.
+final class AttributeColumn {
+
+    @NotNull
+    private final String[] dictionary;
+
+    @NotNull
+    private final Adjacency values;
+
+    @NotNull
+    private final Adjacency holders;
+
+    AttributeColumn(@NotNull final String[][] literals) {
+        final SortedSet<String> distinctLiterals = new TreeSet<>();
+        for (final String[] individualLiterals : literals) Collections.addAll(distinctLiterals, individualLiterals);
+        dictionary = distinctLiterals.toArray(new String[distinctLiterals.size()]);
+
+        final int[][] literalIds = new int[literals.length][];
+        for (int individualId = 0; individualId < literals.length; ++individualId) {
+            final int[] ids = new int[literals[individualId].length];
+            for (int index = 0; index < ids.length; ++index)
+                ids[index] = Arrays.binarySearch(dictionary, literals[individualId][index]);
+            Arrays.sort(ids);
+            literalIds[individualId] = ids;
+        }
+
+        values = new Adjacency(literalIds);
+        holders = values.invert(dictionary.length);
+    }
+
+    int count(final int individualId) {
+        return values.count(individualId);
+    }
+
+    @NotNull
+    String[] get(final int individualId) {
+        final int[] literalIds = values.get(individualId);
+
+        final String[] literals = new String[literalIds.length];
+        for (int index = 0; index < literalIds.length; ++index) literals[index] = dictionary[literalIds[index]];
+
+        return literals;
+    }
+
+    // Sorted ids of the individuals holding exactly this literal.
+    @NotNull
+    int[] find(@NotNull final String literal) {
+        final int literalId = Arrays.binarySearch(dictionary, literal);
+
+        return literalId < 0 ? new int[0] : holders.get(literalId);
+    }
+}
@@ -0,0 +1,765 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import vn.edu.uit.ontologymanager.model.DataType;
+import vn.edu.uit.shared.Buildable;
+
+import java.util.*;
+
+import static vn.edu.uit.ontologymanager.model.DataType.*;
+
+// A snapshot held on the heap, taken from the ontology and the reasoner once, after classification.
+final class HeapSnapshot implements OntologySnapshot {
+
+    @NotNull
+    private final Table classes;
+
+    @NotNull
+    private final Table relations;
+
+    @NotNull
+    private final Table attributes;
+
+    @NotNull
+    private final Table individuals;
+
+    @NotNull
+    private final int[][] directSuperClasses;
+
+    @NotNull
+    private final BitSet[] ancestors;
+
+    @NotNull
+    private final int[][] directSubClasses;
+
+    @NotNull
+    private final BitSet[] descendants;
+
+    @NotNull
+    private final int[][] directInstances;
+
+    @NotNull
+    private final BitSet[] instances;
+
+    @NotNull
+    private final int[][] domainRelations;
+
+    @NotNull
+    private final int[][] rangeRelations;
+
+    @NotNull
+    private final int[] inverseRelations;
+
+    @NotNull
+    private final int[][] directRelationDomains;
+
+    @NotNull
+    private final int[][] allRelationDomains;
+
+    @NotNull
+    private final int[][] directRelationRanges;
+
+    @NotNull
+    private final int[][] allRelationRanges;
+
+    @NotNull
+    private final int[][] classAttributes;
+
+    @NotNull
+    private final DataType[] attributeRanges;
+
+    @NotNull
+    private final String[][] attributeEnumeratedValues;
+
+    @NotNull
+    private final int[][] directAttributeDomains;
+
+    @NotNull
+    private final int[][] allAttributeDomains;
+
+    @NotNull
+    private final int[][] directIndividualClasses;
+
+    @NotNull
+    private final BitSet[] types;
+
+    @NotNull
+    private final Adjacency[] relationValues;
+
+    @NotNull
+    private final Adjacency[] inverseRelationValues;
+
+    @NotNull
+    private final AttributeColumn[] attributeValues;
+
+    private HeapSnapshot(@NotNull final Builder builder) {
+        classes = builder.classes;
+        relations = builder.relations;
+        attributes = builder.attributes;
+        individuals = builder.individuals;
+        directSuperClasses = builder.directSuperClasses;
+        ancestors = builder.ancestors;
+        directSubClasses = builder.directSubClasses;
+        descendants = builder.descendants;
+        directInstances = builder.directInstances;
+        instances = builder.instances;
+        domainRelations = builder.domainRelations;
+        rangeRelations = builder.rangeRelations;
+        inverseRelations = builder.inverseRelations;
+        directRelationDomains = builder.directRelationDomains;
+        allRelationDomains = builder.allRelationDomains;
+        directRelationRanges = builder.directRelationRanges;
+        allRelationRanges = builder.allRelationRanges;
+        classAttributes = builder.classAttributes;
+        attributeRanges = builder.attributeRanges;
+        attributeEnumeratedValues = builder.attributeEnumeratedValues;
+        directAttributeDomains = builder.directAttributeDomains;
+        allAttributeDomains = builder.allAttributeDomains;
+        directIndividualClasses = builder.directIndividualClasses;
+        types = builder.types;
+        relationValues = builder.relationValues;
+        inverseRelationValues = builder.inverseRelationValues;
+        attributeValues = builder.attributeValues;
+    }
+
+    @Override
+    @NotNull
+    public EntityTable getClasses() {
+        return classes;
+    }
+
+    @Override
+    @NotNull
+    public EntityTable getRelations() {
+        return relations;
+    }
+
+    @Override
+    @NotNull
+    public EntityTable getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    @NotNull
+    public EntityTable getIndividuals() {
+        return individuals;
+    }
+
+    @Override
+    @NotNull
+    public int[] getSuperClasses(final int classId, final boolean direct) {
+        return direct ? directSuperClasses[classId] : ancestors[classId].stream().toArray();
+    }
+
+    @Override
+    @NotNull
+    public int[] getSubClasses(final int classId, final boolean direct) {
+        return direct ? directSubClasses[classId] : descendants[classId].stream().toArray();
+    }
+
+    @Override
+    public boolean isSubClass(final int subClassId, final int superClassId) {
+        return ancestors[subClassId].get(superClassId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getClassIndividuals(final int classId, final boolean direct) {
+        return direct ? directInstances[classId] : instances[classId].stream().toArray();
+    }
+
+    @Override
+    @NotNull
+    public int[] getDomainRelations(final int classId) {
+        return domainRelations[classId];
+    }
+
+    @Override
+    @NotNull
+    public int[] getRangeRelations(final int classId) {
+        return rangeRelations[classId];
+    }
+
+    @Override
+    public int getInverseRelation(final int relationId) {
+        return inverseRelations[relationId];
+    }
+
+    @Override
+    @Nullable
+    public int[] getRelationDomains(final int relationId, final boolean direct) {
+        return direct ? directRelationDomains[relationId] : allRelationDomains[relationId];
+    }
+
+    @Override
+    @Nullable
+    public int[] getRelationRanges(final int relationId, final boolean direct) {
+        return direct ? directRelationRanges[relationId] : allRelationRanges[relationId];
+    }
+
+    @Override
+    @NotNull
+    public int[] getClassAttributes(final int classId) {
+        return classAttributes[classId];
+    }
+
+    @Override
+    @Nullable
+    public DataType getAttributeRange(final int attributeId) {
+        return attributeRanges[attributeId];
+    }
+
+    @Override
+    @Nullable
+    public String[] getAttributeEnumeratedValues(final int attributeId) {
+        return attributeEnumeratedValues[attributeId];
+    }
+
+    @Override
+    @Nullable
+    public int[] getAttributeDomains(final int attributeId, final boolean direct) {
+        return direct ? directAttributeDomains[attributeId] : allAttributeDomains[attributeId];
+    }
+
+    @Override
+    @Nullable
+    public int[] getIndividualClasses(final int individualId, final boolean direct) {
+        if (direct) return directIndividualClasses[individualId];
+
+        return types[individualId] == null ? null : types[individualId].stream().toArray();
+    }
+
+    @Override
+    @NotNull
+    public int[] getIndividualRelations(final int individualId) {
+        int count = 0;
+        for (final Adjacency values : relationValues) if (values.count(individualId) > 0) ++count;
+
+        final int[] relationIds = new int[count];
+        count = 0;
+        for (int relationId = 0; relationId < relationValues.length; ++relationId)
+            if (relationValues[relationId].count(individualId) > 0) relationIds[count++] = relationId;
+
+        return relationIds;
+    }
+
+    @Override
+    @NotNull
+    public int[] getRelationValues(final int individualId, final int relationId) {
+        return relationValues[relationId].get(individualId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getInverseRelationValues(final int individualId, final int relationId) {
+        return inverseRelationValues[relationId].get(individualId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getIndividualAttributes(final int individualId) {
+        int count = 0;
+        for (final AttributeColumn values : attributeValues) if (values.count(individualId) > 0) ++count;
+
+        final int[] attributeIds = new int[count];
+        count = 0;
+        for (int attributeId = 0; attributeId < attributeValues.length; ++attributeId)
+            if (attributeValues[attributeId].count(individualId) > 0) attributeIds[count++] = attributeId;
+
+        return attributeIds;
+    }
+
+    @Override
+    @NotNull
+    public String[] getAttributeValues(final int individualId, final int attributeId) {
+        return attributeValues[attributeId].get(individualId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getAttributeIndividuals(final int attributeId, @NotNull final String value) {
+        return attributeValues[attributeId].find(value);
+    }
+
+    private static final class Table implements EntityTable {
+
+        @NotNull
+        private final String[] names;
+
+        @NotNull
+        private final String[] labels;
+
+        @NotNull
+        private final String[] comments;
+
+        @NotNull
+        private final Map<String, Integer> ids;
+
+        private Table(@NotNull final String[] names, @NotNull final String[] labels,
+                      @NotNull final String[] comments, @NotNull final Map<String, Integer> ids) {
+            this.names = names;
+            this.labels = labels;
+            this.comments = comments;
+            this.ids = ids;
+        }
+
+        @Override
+        public int size() {
+            return names.length;
+        }
+
+        @Override
+        public int find(@NotNull final String name) {
+            final Integer id = ids.get(name);
+
+            return id == null ? NOT_FOUND : id;
+        }
+
+        @Override
+        @NotNull
+        public String getName(final int id) {
+            return names[id];
+        }
+
+        @Override
+        @Nullable
+        public String getLabel(final int id) {
+            return labels[id];
+        }
+
+        @Override
+        @Nullable
+        public String getComment(final int id) {
+            return comments[id];
+        }
+    }
+
+    static final class Builder implements Buildable<HeapSnapshot> {
+
+        @NotNull
+        private static final List<String> LANGUAGE_PREFERENCE = Arrays.asList(OntologyManager.DEFAULT_LANG, "");
+
+        @NotNull
+        private final OWLOntology ontology;
+
+        @NotNull
+        private final OWLReasoner reasoner;
+
+        @NotNull
+        private final String prefix;
+
+        @NotNull
+        private final OWLDataFactory factory;
+
+        @NotNull
+        private final Map<OWLEntity, Integer> ids = new HashMap<>();
+
+        @NotNull
+        private final LabelIndex labelIndex;
+
+        @NotNull
+        private final LabelIndex commentIndex;
+
+        private Table classes;
+
+        private Table relations;
+
+        private Table attributes;
+
+        private Table individuals;
+
+        private int[][] directSuperClasses;
+
+        private BitSet[] ancestors;
+
+        private int[][] directSubClasses;
+
+        private BitSet[] descendants;
+
+        private int[][] directInstances;
+
+        private BitSet[] instances;
+
+        private int[][] domainRelations;
+
+        private int[][] rangeRelations;
+
+        private int[] inverseRelations;
+
+        private int[][] directRelationDomains;
+
+        private int[][] allRelationDomains;
+
+        private int[][] directRelationRanges;
+
+        private int[][] allRelationRanges;
+
+        private int[][] classAttributes;
+
+        private DataType[] attributeRanges;
+
+        private String[][] attributeEnumeratedValues;
+
+        private int[][] directAttributeDomains;
+
+        private int[][] allAttributeDomains;
+
+        private int[][] directIndividualClasses;
+
+        private BitSet[] types;
+
+        private Adjacency[] relationValues;
+
+        private Adjacency[] inverseRelationValues;
+
+        private AttributeColumn[] attributeValues;
+
+        Builder(@NotNull final OWLOntology ontology, @NotNull final OWLReasoner reasoner, @NotNull final String prefix) {
+            this.ontology = ontology;
+            this.reasoner = reasoner;
+            this.prefix = prefix;
+            factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+            labelIndex = new LabelIndex(ontology, factory.getRDFSLabel());
+            commentIndex = new LabelIndex(ontology, factory.getRDFSComment());
+        }
+
+        @Override
+        @NotNull
+        public HeapSnapshot build() {
+            final Set<OWLClass> owlClassSet = new HashSet<>(ontology.getClassesInSignature());
+            owlClassSet.add(factory.getOWLThing());
+            owlClassSet.add(factory.getOWLNothing());
+
+            final Set<OWLObjectProperty> owlRelationSet = new HashSet<>();
+            for (final OWLObjectProperty owlRelation : ontology.getObjectPropertiesInSignature())
+                if (!owlRelation.isOWLTopObjectProperty()) owlRelationSet.add(owlRelation);
+
+            final Set<OWLDataProperty> owlAttributeSet = new HashSet<>();
+            for (final OWLDataProperty owlAttribute : ontology.getDataPropertiesInSignature())
+                if (!owlAttribute.isOWLTopDataProperty()) owlAttributeSet.add(owlAttribute);
+
+            final List<OWLClass> owlClasses = assignIds(owlClassSet);
+            final List<OWLObjectProperty> owlRelations = assignIds(owlRelationSet);
+            final List<OWLDataProperty> owlAttributes = assignIds(owlAttributeSet);
+            final List<OWLNamedIndividual> owlIndividuals = assignIds(ontology.getIndividualsInSignature());
+
+            buildClasses(owlClasses);
+            buildRelations(owlRelations);
+            buildAttributes(owlAttributes);
+            buildIndividuals(owlIndividuals, owlRelations, owlAttributes);
+
+            return new HeapSnapshot(this);
+        }
+
+        private void buildClasses(@NotNull final List<OWLClass> owlClasses) {
+            classes = createTable(owlClasses, null);
+            // The hierarchy always names owl:Thing "Thing", even when the ontology has a class of the same name.
+            classes.ids.put("Thing", ids.get(factory.getOWLThing()));
+
+            final int count = owlClasses.size();
+            directSuperClasses = new int[count][];
+            directSubClasses = new int[count][];
+            directInstances = new int[count][];
+            for (int id = 0; id < count; ++id) {
+                final OWLClass owlClass = owlClasses.get(id);
+
+                directSuperClasses[id] = toIds(reasoner.getSuperClasses(owlClass, true).getFlattened());
+                directSubClasses[id] = toIds(withoutNothing(reasoner.getSubClasses(owlClass, true).getFlattened()));
+                directInstances[id] = toIds(reasoner.getInstances(owlClass, true).getFlattened());
+            }
+
+            // Only the direct hierarchy comes from the reasoner; the transitive one is closed over it here.
+            ancestors = close(directSuperClasses);
+            descendants = close(directSubClasses);
+            instances = new BitSet[count];
+            for (int id = 0; id < count; ++id) {
+                instances[id] = new BitSet();
+                for (final int individualId : directInstances[id]) instances[id].set(individualId);
+                for (int subClassId = descendants[id].nextSetBit(0); subClassId >= 0; subClassId = descendants[id].nextSetBit(subClassId + 1))
+                    for (final int individualId : directInstances[subClassId]) instances[id].set(individualId);
+            }
+        }
+
+        private void buildRelations(@NotNull final List<OWLObjectProperty> owlRelations) {
+            relations = createTable(owlRelations, null);
+
+            final int count = owlRelations.size();
+            inverseRelations = new int[count];
+            directRelationDomains = new int[count][];
+            allRelationDomains = new int[count][];
+            directRelationRanges = new int[count][];
+            allRelationRanges = new int[count][];
+            for (int id = 0; id < count; ++id) {
+                final OWLObjectProperty owlRelation = owlRelations.get(id);
+
+                inverseRelations[id] = getInverseRelation(owlRelation);
+
+                final List<OWLClassExpression> owlDomains = new ArrayList<>();
+                for (final OWLObjectPropertyDomainAxiom owlAxiom : ontology.getObjectPropertyDomainAxioms(owlRelation))
+                    owlDomains.add(owlAxiom.getDomain());
+                directRelationDomains[id] = getRestrictionClasses(owlDomains, true);
+                allRelationDomains[id] = getRestrictionClasses(owlDomains, false);
+
+                final List<OWLClassExpression> owlRanges = new ArrayList<>();
+                for (final OWLObjectPropertyRangeAxiom owlAxiom : ontology.getObjectPropertyRangeAxioms(owlRelation))
+                    owlRanges.add(owlAxiom.getRange());
+                directRelationRanges[id] = getRestrictionClasses(owlRanges, true);
+                allRelationRanges[id] = getRestrictionClasses(owlRanges, false);
+            }
+
+            domainRelations = invert(allRelationDomains, classes.size());
+            rangeRelations = invert(allRelationRanges, classes.size());
+        }
+
+        private void buildAttributes(@NotNull final List<OWLDataProperty> owlAttributes) {
+            attributes = createTable(owlAttributes, null);
+
+            final int count = owlAttributes.size();
+            attributeRanges = new DataType[count];
+            attributeEnumeratedValues = new String[count][];
+            directAttributeDomains = new int[count][];
+            allAttributeDomains = new int[count][];
+            for (int id = 0; id < count; ++id) {
+                final OWLDataProperty owlAttribute = owlAttributes.get(id);
+
+                final Set<OWLDataPropertyRangeAxiom> owlRangeAxioms = ontology.getDataPropertyRangeAxioms(owlAttribute);
+                if (owlRangeAxioms.size() == 1) {
+                    final OWLDataRange owlDataRange = owlRangeAxioms.iterator().next().getRange();
+                    attributeRanges[id] = getDataType(owlDataRange);
+                    if (owlDataRange instanceof OWLDataOneOf) {
+                        final List<String> values = new ArrayList<>();
+                        for (final OWLLiteral owlLiteral : ((OWLDataOneOf) owlDataRange).getValues())
+                            values.add(owlLiteral.getLiteral());
+                        attributeEnumeratedValues[id] = values.toArray(new String[values.size()]);
+                    }
+                }
+
+                final List<OWLClassExpression> owlDomains = new ArrayList<>();
+                for (final OWLDataPropertyDomainAxiom owlAxiom : ontology.getDataPropertyDomainAxioms(owlAttribute))
+                    owlDomains.add(owlAxiom.getDomain());
+                directAttributeDomains[id] = getRestrictionClasses(owlDomains, true);
+                allAttributeDomains[id] = getRestrictionClasses(owlDomains, false);
+            }
+
+            classAttributes = invert(allAttributeDomains, classes.size());
+        }
+
+        private void buildIndividuals(@NotNull final List<OWLNamedIndividual> owlIndividuals,
+                                      @NotNull final List<OWLObjectProperty> owlRelations,
+                                      @NotNull final List<OWLDataProperty> owlAttributes) {
+            final int count = owlIndividuals.size();
+            directIndividualClasses = new int[count][];
+            types = new BitSet[count];
+            final int[][][] values = new int[owlRelations.size()][count][];
+            final String[][][] literals = new String[owlAttributes.size()][count][];
+
+            final Integer nameAttributeId = ids.get(factory.getOWLDataProperty(IRI.create(prefix, OntologyManager.NAME_ATTRIBUTE)));
+            final String[] displayNames = new String[count];
+            for (int id = 0; id < count; ++id) {
+                final OWLNamedIndividual owlIndividual = owlIndividuals.get(id);
+
+                final Set<OWLClassAssertionAxiom> owlAxioms = ontology.getClassAssertionAxioms(owlIndividual);
+                if (owlAxioms.size() == 1) {
+                    final Set<OWLClass> owlDirectClasses = owlAxioms.iterator().next().getClassesInSignature();
+                    if (owlDirectClasses.size() == 1) directIndividualClasses[id] = toIds(withoutThing(owlDirectClasses));
+                    types[id] = new BitSet();
+                }
+
+                for (int relationId = 0; relationId < owlRelations.size(); ++relationId)
+                    values[relationId][id] = toIds(reasoner.getObjectPropertyValues(owlIndividual, owlRelations.get(relationId)).getFlattened());
+
+                for (int attributeId = 0; attributeId < owlAttributes.size(); ++attributeId) {
+                    final Set<OWLLiteral> owlLiterals = reasoner.getDataPropertyValues(owlIndividual, owlAttributes.get(attributeId));
+
+                    final String[] strings = new String[owlLiterals.size()];
+                    int index = 0;
+                    for (final OWLLiteral owlLiteral : owlLiterals) strings[index++] = owlLiteral.getLiteral();
+
+                    literals[attributeId][id] = strings;
+                    if (nameAttributeId != null && attributeId == nameAttributeId && strings.length > 0)
+                        displayNames[id] = strings[0];
+                }
+            }
+
+            final int thingId = ids.get(factory.getOWLThing());
+            for (int classId = 0; classId < instances.length; ++classId) {
+                if (classId == thingId) continue;
+
+                final BitSet classInstances = instances[classId];
+                for (int id = classInstances.nextSetBit(0); id >= 0; id = classInstances.nextSetBit(id + 1))
+                    if (types[id] != null) types[id].set(classId);
+            }
+
+            relationValues = new Adjacency[owlRelations.size()];
+            inverseRelationValues = new Adjacency[owlRelations.size()];
+            for (int relationId = 0; relationId < owlRelations.size(); ++relationId) {
+                relationValues[relationId] = new Adjacency(values[relationId]);
+                inverseRelationValues[relationId] = relationValues[relationId].invert(count);
+            }
+
+            attributeValues = new AttributeColumn[owlAttributes.size()];
+            for (int attributeId = 0; attributeId < owlAttributes.size(); ++attributeId)
+                attributeValues[attributeId] = new AttributeColumn(literals[attributeId]);
+
+            // Individuals are labelled by their name attribute rather than by rdfs:label.
+            individuals = createTable(owlIndividuals, displayNames);
+        }
+
+        @NotNull
+        private <T extends OWLEntity> List<T> assignIds(@NotNull final Collection<T> owlEntities) {
+            final List<T> sortedEntities = new ArrayList<>(owlEntities);
+            sortedEntities.sort(Comparator.comparing((T owlEntity) -> owlEntity.getIRI().getShortForm())
+                    .thenComparing(owlEntity -> owlEntity.getIRI().toString()));
+
+            for (int id = 0; id < sortedEntities.size(); ++id) ids.put(sortedEntities.get(id), id);
+
+            return sortedEntities;
+        }
+
+        @NotNull
+        private Table createTable(@NotNull final List<? extends OWLEntity> owlEntities, @Nullable final String[] labels) {
+            final int count = owlEntities.size();
+            final String[] names = new String[count];
+            final String[] entityLabels = labels == null ? new String[count] : labels;
+            final String[] comments = new String[count];
+            final Map<String, Integer> entityIds = new HashMap<>();
+            for (int id = 0; id < count; ++id) {
+                final IRI iri = owlEntities.get(id).getIRI();
+
+                names[id] = iri.getShortForm();
+                if (labels == null) entityLabels[id] = labelIndex.get(iri, LANGUAGE_PREFERENCE);
+                comments[id] = commentIndex.get(iri, LANGUAGE_PREFERENCE);
+                // Requests name entities relative to the ontology, so only those entities can be looked up.
+                if (iri.toString().equals(prefix + names[id])) entityIds.put(names[id], id);
+            }
+
+            return new Table(names, entityLabels, comments, entityIds);
+        }
+
+        private int getInverseRelation(@NotNull final OWLObjectProperty owlRelation) {
+            final Set<OWLObjectPropertyExpression> owlInverseRelations = reasoner.getInverseObjectProperties(owlRelation).getEntities();
+            if (owlInverseRelations.size() != 2) return NOT_FOUND;
+
+            for (final OWLObjectPropertyExpression owlInverseRelation : owlInverseRelations) {
+                if (owlInverseRelation.getNamedProperty().getIRI().getShortForm().equals(owlRelation.getIRI().getShortForm()))
+                    continue;
+
+                final Integer id = ids.get(owlInverseRelation.getNamedProperty());
+                return id == null ? NOT_FOUND : id;
+            }
+
+            return NOT_FOUND;
+        }
+
+        // A restriction naming a single class covers that class and, unless only direct classes are asked for, all of
+        // its subclasses. Any other class expression covers the classes the reasoner finds under it.
+        @Nullable
+        private int[] getRestrictionClasses(@NotNull final List<OWLClassExpression> owlExpressions, final boolean direct) {
+            if (owlExpressions.size() != 1) return null;
+
+            final OWLClassExpression owlExpression = owlExpressions.get(0);
+            Set<OWLClass> owlClasses = owlExpression.getClassesInSignature();
+
+            final Set<OWLClass> restrictionClasses = new HashSet<>();
+            if (owlClasses.size() == 1) {
+                if (!direct) {
+                    final OWLClass owlSuperClass = owlClasses.iterator().next();
+                    restrictionClasses.add(owlSuperClass);
+
+                    owlClasses = reasoner.getSubClasses(owlSuperClass, false).getFlattened();
+                }
+            } else owlClasses = reasoner.getSubClasses(owlExpression, direct).getFlattened();
+            restrictionClasses.addAll(withoutNothing(owlClasses));
+
+            return restrictionClasses.isEmpty() ? null : toIds(restrictionClasses);
+        }
+
+        @NotNull
+        private DataType getDataType(@NotNull final OWLDataRange owlDataRange) {
+            if (owlDataRange.isDatatype()) {
+                final OWLDatatype owlDataType = owlDataRange.asOWLDatatype();
+
+                if (owlDataType.isString()) return STRING;
+                else if (owlDataType.isBoolean()) return BOOLEAN;
+                else if (owlDataType.getIRI().getShortForm().equals("int")) return INT;
+                else return UNKNOWN;
+            } else if (owlDataRange instanceof OWLDataOneOf) return ENUMERATED;
+            else return UNKNOWN;
+        }
+
+        @NotNull
+        private int[] toIds(@NotNull final Collection<? extends OWLEntity> owlEntities) {
+            final int[] entityIds = new int[owlEntities.size()];
+            int count = 0;
+            for (final OWLEntity owlEntity : owlEntities) {
+                final Integer id = ids.get(owlEntity);
+                if (id != null) entityIds[count++] = id;
+            }
+            Arrays.sort(entityIds, 0, count);
+
+            return count == entityIds.length ? entityIds : Arrays.copyOf(entityIds, count);
+        }
+
+        // Transitive closure of a hierarchy given by its direct edges. Each class is closed once, after its targets.
+        @NotNull
+        private static BitSet[] close(@NotNull final int[][] directEdges) {
+            final BitSet[] closures = new BitSet[directEdges.length];
+            for (int id = 0; id < directEdges.length; ++id) close(id, directEdges, closures);
+
+            return closures;
+        }
+
+        @NotNull
+        private static BitSet close(final int id, @NotNull final int[][] directEdges, @NotNull final BitSet[] closures) {
+            if (closures[id] == null) {
+                final BitSet closure = new BitSet(directEdges.length);
+                closures[id] = closure;
+                for (final int target : directEdges[id]) {
+                    closure.set(target);
+                    closure.or(close(target, directEdges, closures));
+                }
+            }
+
+            return closures[id];
+        }
+
+        // Turns lists of classes per property into lists of properties per class. The properties are visited in id
+        // order, so every inverted list comes out sorted.
+        @NotNull
+        private static int[][] invert(@NotNull final int[][] lists, final int targetCount) {
+            final int[] counts = new int[targetCount];
+            for (final int[] list : lists)
+                if (list != null) for (final int target : list) ++counts[target];
+
+            final int[][] inverted = new int[targetCount][];
+            for (int target = 0; target < targetCount; ++target) inverted[target] = new int[counts[target]];
+
+            Arrays.fill(counts, 0);
+            for (int source = 0; source < lists.length; ++source)
+                if (lists[source] != null)
+                    for (final int target : lists[source]) inverted[target][counts[target]++] = source;
+
+            return inverted;
+        }
+
+        @NotNull
+        private static Set<OWLClass> withoutThing(@NotNull final Set<OWLClass> owlClasses) {
+            final Set<OWLClass> filteredClasses = new HashSet<>(owlClasses);
+            filteredClasses.removeIf(OWLClass::isOWLThing);
+
+            return filteredClasses;
+        }
+
+        @NotNull
+        private static Set<OWLClass> withoutNothing(@NotNull final Set<OWLClass> owlClasses) {
+            final Set<OWLClass> filteredClasses = new HashSet<>(owlClasses);
+            filteredClasses.removeIf(OWLClass::isOWLNothing);
+
+            return filteredClasses;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.*;
+
+// Literals of one annotation property, collected in a single pass over the annotation assertions. Every annotated
+// IRI gets a dense key, and its literals sit in the flat arrays between offsets[key] and offsets[key + 1].
+final class LabelIndex {
+
+    @NotNull
+    private final Map<IRI, Integer> keys = new HashMap<>();
+
+    @NotNull
+    private final int[] offsets;
+
+    @NotNull
+    private final String[] languages;
+
+    @NotNull
+    private final String[] values;
+
+    LabelIndex(@NotNull final OWLOntology ontology, @NotNull final OWLAnnotationProperty owlProperty) {
+        final Map<IRI, List<OWLLiteral>> owlLiterals = new LinkedHashMap<>();
+        int count = 0;
+        for (final OWLAnnotationAssertionAxiom owlAxiom : ontology.getAxioms(AxiomType.ANNOTATION_ASSERTION)) {
+            if (!owlAxiom.getProperty().equals(owlProperty)) continue;
+            if (!(owlAxiom.getSubject() instanceof IRI) || !(owlAxiom.getValue() instanceof OWLLiteral)) continue;
+
+            owlLiterals.computeIfAbsent((IRI) owlAxiom.getSubject(), iri -> new ArrayList<>()).add((OWLLiteral) owlAxiom.getValue());
+            ++count;
+        }
+
+        offsets = new int[owlLiterals.size() + 1];
+        languages = new String[count];
+        values = new String[count];
+
+        int key = 0;
+        int position = 0;
+        for (final Map.Entry<IRI, List<OWLLiteral>> entry : owlLiterals.entrySet()) {
+            keys.put(entry.getKey(), key);
+            offsets[key++] = position;
+            for (final OWLLiteral owlLiteral : entry.getValue()) {
+                languages[position] = owlLiteral.getLang().toLowerCase(Locale.ROOT);
+                values[position++] = owlLiteral.getLiteral();
+            }
+        }
+        offsets[key] = position;
+    }
+
+    // Picks the literal whose language comes first in the preference, where "" stands for untagged literals.
+    // Literals in other languages are used only when nothing preferred exists.
+    @Nullable
+    String get(@NotNull final IRI iri, @NotNull final List<String> languagePreference) {
+        final Integer key = keys.get(iri);
+        if (key == null) return null;
+
+        String value = null;
+        int bestRank = Integer.MAX_VALUE;
+        for (int position = offsets[key]; position < offsets[key + 1]; ++position) {
+            int rank = languagePreference.indexOf(languages[position]);
+            if (rank < 0) rank = languagePreference.size();
+
+            if (rank < bestRank) {
+                bestRank = rank;
+                value = values[position];
+            }
+        }
+
+        return value;
+    }
+}
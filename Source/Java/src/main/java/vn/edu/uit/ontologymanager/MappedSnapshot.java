@@ -0,0 +1,646 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import vn.edu.uit.ontologymanager.model.DataType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// A snapshot read in place from a flat, usually memory-mapped, buffer, so processes mapping the same file share its
+// pages. The buffer is a fixed sequence of blocks. Every block holds a number of entries, their byte offsets, their
+// lengths and then the entry data; an entry is a list of ints or longs or one UTF-8 string, and a length of -1 marks
+// a null entry. Only absolute reads are used, so the buffer can be shared between threads.
+final class MappedSnapshot implements OntologySnapshot {
+
+    // An entity table takes five blocks: names, labels, comments, lookup keys in byte order and their ids.
+    private static final int TABLE_BLOCKS = 5;
+    private static final int CLASSES = 0;
+    private static final int RELATIONS = CLASSES + TABLE_BLOCKS;
+    private static final int ATTRIBUTES = RELATIONS + TABLE_BLOCKS;
+    private static final int INDIVIDUALS = ATTRIBUTES + TABLE_BLOCKS;
+
+    private static final int DIRECT_SUPER_CLASSES = INDIVIDUALS + TABLE_BLOCKS;
+    private static final int ANCESTORS = DIRECT_SUPER_CLASSES + 1;
+    private static final int DIRECT_SUB_CLASSES = ANCESTORS + 1;
+    private static final int DESCENDANTS = DIRECT_SUB_CLASSES + 1;
+    private static final int DIRECT_INSTANCES = DESCENDANTS + 1;
+    private static final int INSTANCES = DIRECT_INSTANCES + 1;
+    private static final int DOMAIN_RELATIONS = INSTANCES + 1;
+    private static final int RANGE_RELATIONS = DOMAIN_RELATIONS + 1;
+    private static final int CLASS_ATTRIBUTES = RANGE_RELATIONS + 1;
+    private static final int INVERSE_RELATIONS = CLASS_ATTRIBUTES + 1;
+    private static final int DIRECT_RELATION_DOMAINS = INVERSE_RELATIONS + 1;
+    private static final int ALL_RELATION_DOMAINS = DIRECT_RELATION_DOMAINS + 1;
+    private static final int DIRECT_RELATION_RANGES = ALL_RELATION_DOMAINS + 1;
+    private static final int ALL_RELATION_RANGES = DIRECT_RELATION_RANGES + 1;
+    private static final int ATTRIBUTE_RANGES = ALL_RELATION_RANGES + 1;
+    private static final int ENUMERATED_VALUE_IDS = ATTRIBUTE_RANGES + 1;
+    private static final int ENUMERATED_VALUES = ENUMERATED_VALUE_IDS + 1;
+    private static final int DIRECT_ATTRIBUTE_DOMAINS = ENUMERATED_VALUES + 1;
+    private static final int ALL_ATTRIBUTE_DOMAINS = DIRECT_ATTRIBUTE_DOMAINS + 1;
+    private static final int DIRECT_INDIVIDUAL_CLASSES = ALL_ATTRIBUTE_DOMAINS + 1;
+    private static final int INDIVIDUAL_TYPES = DIRECT_INDIVIDUAL_CLASSES + 1;
+    // Relation values are indexed by relation id times the number of individuals plus individual id.
+    private static final int RELATION_VALUES = INDIVIDUAL_TYPES + 1;
+    private static final int INVERSE_RELATION_VALUES = RELATION_VALUES + 1;
+    // Literals of attribute a are entries literalStarts[a] to literalStarts[a + 1] of LITERALS, sorted in byte order.
+    private static final int LITERAL_STARTS = INVERSE_RELATION_VALUES + 1;
+    private static final int LITERALS = LITERAL_STARTS + 1;
+    private static final int ATTRIBUTE_VALUES = LITERALS + 1;
+    private static final int LITERAL_HOLDERS = ATTRIBUTE_VALUES + 1;
+    private static final int BLOCKS = LITERAL_HOLDERS + 1;
+
+    @NotNull
+    private static final Comparator<byte[]> BYTE_ORDER = (left, right) -> {
+        for (int index = 0; index < left.length && index < right.length; ++index) {
+            final int difference = (left[index] & 0xff) - (right[index] & 0xff);
+            if (difference != 0) return difference;
+        }
+
+        return left.length - right.length;
+    };
+
+    @NotNull
+    private final Block[] blocks = new Block[BLOCKS];
+
+    @NotNull
+    private final Table classes;
+
+    @NotNull
+    private final Table relations;
+
+    @NotNull
+    private final Table attributes;
+
+    @NotNull
+    private final Table individuals;
+
+    MappedSnapshot(@NotNull final ByteBuffer buffer) throws IOException {
+        int position = 0;
+        for (int block = 0; block < BLOCKS; ++block) {
+            if (position + Integer.BYTES > buffer.limit()) throw new IOException("Snapshot is truncated.");
+
+            final int length = buffer.getInt(position);
+            position += Integer.BYTES;
+            if (length < Integer.BYTES || length > buffer.limit() - position) throw new IOException("Snapshot is truncated.");
+
+            // Entry offsets and lengths are read without checks, so their table must fit in the block.
+            final int size = buffer.getInt(position);
+            if (size < 0 || Integer.BYTES * (1 + 2L * size) > length) throw new IOException("Snapshot is corrupt.");
+
+            blocks[block] = new Block(buffer, position);
+            position += length;
+        }
+        if (position != buffer.limit()) throw new IOException("Unexpected data after snapshot.");
+
+        classes = new Table(CLASSES);
+        relations = new Table(RELATIONS);
+        attributes = new Table(ATTRIBUTES);
+        individuals = new Table(INDIVIDUALS);
+    }
+
+    @Override
+    @NotNull
+    public EntityTable getClasses() {
+        return classes;
+    }
+
+    @Override
+    @NotNull
+    public EntityTable getRelations() {
+        return relations;
+    }
+
+    @Override
+    @NotNull
+    public EntityTable getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    @NotNull
+    public EntityTable getIndividuals() {
+        return individuals;
+    }
+
+    @Override
+    @NotNull
+    public int[] getSuperClasses(final int classId, final boolean direct) {
+        return direct ? blocks[DIRECT_SUPER_CLASSES].getInts(classId) : blocks[ANCESTORS].getBits(classId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getSubClasses(final int classId, final boolean direct) {
+        return direct ? blocks[DIRECT_SUB_CLASSES].getInts(classId) : blocks[DESCENDANTS].getBits(classId);
+    }
+
+    @Override
+    public boolean isSubClass(final int subClassId, final int superClassId) {
+        return blocks[ANCESTORS].getBit(subClassId, superClassId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getClassIndividuals(final int classId, final boolean direct) {
+        return direct ? blocks[DIRECT_INSTANCES].getInts(classId) : blocks[INSTANCES].getBits(classId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getDomainRelations(final int classId) {
+        return blocks[DOMAIN_RELATIONS].getInts(classId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getRangeRelations(final int classId) {
+        return blocks[RANGE_RELATIONS].getInts(classId);
+    }
+
+    @Override
+    public int getInverseRelation(final int relationId) {
+        return blocks[INVERSE_RELATIONS].getInt(0, relationId);
+    }
+
+    @Override
+    @Nullable
+    public int[] getRelationDomains(final int relationId, final boolean direct) {
+        return blocks[direct ? DIRECT_RELATION_DOMAINS : ALL_RELATION_DOMAINS].getInts(relationId);
+    }
+
+    @Override
+    @Nullable
+    public int[] getRelationRanges(final int relationId, final boolean direct) {
+        return blocks[direct ? DIRECT_RELATION_RANGES : ALL_RELATION_RANGES].getInts(relationId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getClassAttributes(final int classId) {
+        return blocks[CLASS_ATTRIBUTES].getInts(classId);
+    }
+
+    @Override
+    @Nullable
+    public DataType getAttributeRange(final int attributeId) {
+        final int ordinal = blocks[ATTRIBUTE_RANGES].getInt(0, attributeId);
+
+        return ordinal < 0 ? null : DataType.values()[ordinal];
+    }
+
+    @Override
+    @Nullable
+    public String[] getAttributeEnumeratedValues(final int attributeId) {
+        final int[] valueIds = blocks[ENUMERATED_VALUE_IDS].getInts(attributeId);
+        if (valueIds == null) return null;
+
+        return getStrings(blocks[ENUMERATED_VALUES], valueIds);
+    }
+
+    @Override
+    @Nullable
+    public int[] getAttributeDomains(final int attributeId, final boolean direct) {
+        return blocks[direct ? DIRECT_ATTRIBUTE_DOMAINS : ALL_ATTRIBUTE_DOMAINS].getInts(attributeId);
+    }
+
+    @Override
+    @Nullable
+    public int[] getIndividualClasses(final int individualId, final boolean direct) {
+        return blocks[direct ? DIRECT_INDIVIDUAL_CLASSES : INDIVIDUAL_TYPES].getInts(individualId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getIndividualRelations(final int individualId) {
+        return getNonEmpty(blocks[RELATION_VALUES], relations.size(), individualId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getRelationValues(final int individualId, final int relationId) {
+        return blocks[RELATION_VALUES].getInts(relationId * individuals.size() + individualId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getInverseRelationValues(final int individualId, final int relationId) {
+        return blocks[INVERSE_RELATION_VALUES].getInts(relationId * individuals.size() + individualId);
+    }
+
+    @Override
+    @NotNull
+    public int[] getIndividualAttributes(final int individualId) {
+        return getNonEmpty(blocks[ATTRIBUTE_VALUES], attributes.size(), individualId);
+    }
+
+    @Override
+    @NotNull
+    public String[] getAttributeValues(final int individualId, final int attributeId) {
+        return getStrings(blocks[LITERALS], blocks[ATTRIBUTE_VALUES].getInts(attributeId * individuals.size() + individualId));
+    }
+
+    @Override
+    @NotNull
+    public int[] getAttributeIndividuals(final int attributeId, @NotNull final String value) {
+        final Block literalStarts = blocks[LITERAL_STARTS];
+        final int literalId = blocks[LITERALS].search(value.getBytes(StandardCharsets.UTF_8),
+                literalStarts.getInt(0, attributeId), literalStarts.getInt(0, attributeId + 1));
+
+        return literalId < 0 ? new int[0] : blocks[LITERAL_HOLDERS].getInts(literalId);
+    }
+
+    @NotNull
+    private int[] getNonEmpty(@NotNull final Block block, final int propertyCount, final int individualId) {
+        final int[] propertyIds = new int[propertyCount];
+        int count = 0;
+        for (int propertyId = 0; propertyId < propertyCount; ++propertyId)
+            if (block.getLength(propertyId * individuals.size() + individualId) > 0) propertyIds[count++] = propertyId;
+
+        return Arrays.copyOf(propertyIds, count);
+    }
+
+    @NotNull
+    private static String[] getStrings(@NotNull final Block block, @NotNull final int[] entries) {
+        final String[] strings = new String[entries.length];
+        for (int index = 0; index < entries.length; ++index) strings[index] = block.getString(entries[index]);
+
+        return strings;
+    }
+
+    // Lays the snapshot out in the block order the constructor reads.
+    static void write(@NotNull final OntologySnapshot snapshot, @NotNull final DataOutput output) throws IOException {
+        final int classCount = snapshot.getClasses().size();
+        final int relationCount = snapshot.getRelations().size();
+        final int attributeCount = snapshot.getAttributes().size();
+        final int individualCount = snapshot.getIndividuals().size();
+
+        writeTable(snapshot.getClasses(), output);
+        writeTable(snapshot.getRelations(), output);
+        writeTable(snapshot.getAttributes(), output);
+        writeTable(snapshot.getIndividuals(), output);
+
+        final BlockWriter directSuperClasses = new BlockWriter();
+        final BlockWriter ancestors = new BlockWriter();
+        final BlockWriter directSubClasses = new BlockWriter();
+        final BlockWriter descendants = new BlockWriter();
+        final BlockWriter directInstances = new BlockWriter();
+        final BlockWriter instances = new BlockWriter();
+        final BlockWriter domainRelations = new BlockWriter();
+        final BlockWriter rangeRelations = new BlockWriter();
+        final BlockWriter classAttributes = new BlockWriter();
+        for (int classId = 0; classId < classCount; ++classId) {
+            directSuperClasses.addInts(snapshot.getSuperClasses(classId, true));
+            ancestors.addBits(snapshot.getSuperClasses(classId, false));
+            directSubClasses.addInts(snapshot.getSubClasses(classId, true));
+            descendants.addBits(snapshot.getSubClasses(classId, false));
+            directInstances.addInts(snapshot.getClassIndividuals(classId, true));
+            instances.addBits(snapshot.getClassIndividuals(classId, false));
+            domainRelations.addInts(snapshot.getDomainRelations(classId));
+            rangeRelations.addInts(snapshot.getRangeRelations(classId));
+            classAttributes.addInts(snapshot.getClassAttributes(classId));
+        }
+        writeBlocks(output, directSuperClasses, ancestors, directSubClasses, descendants, directInstances, instances,
+                domainRelations, rangeRelations, classAttributes);
+
+        final int[] inverseRelations = new int[relationCount];
+        final BlockWriter directRelationDomains = new BlockWriter();
+        final BlockWriter allRelationDomains = new BlockWriter();
+        final BlockWriter directRelationRanges = new BlockWriter();
+        final BlockWriter allRelationRanges = new BlockWriter();
+        for (int relationId = 0; relationId < relationCount; ++relationId) {
+            inverseRelations[relationId] = snapshot.getInverseRelation(relationId);
+            directRelationDomains.addInts(snapshot.getRelationDomains(relationId, true));
+            allRelationDomains.addInts(snapshot.getRelationDomains(relationId, false));
+            directRelationRanges.addInts(snapshot.getRelationRanges(relationId, true));
+            allRelationRanges.addInts(snapshot.getRelationRanges(relationId, false));
+        }
+        writeBlocks(output, new BlockWriter().addInts(inverseRelations), directRelationDomains, allRelationDomains,
+                directRelationRanges, allRelationRanges);
+
+        final int[] attributeRanges = new int[attributeCount];
+        final BlockWriter enumeratedValueIds = new BlockWriter();
+        final BlockWriter enumeratedValues = new BlockWriter();
+        final BlockWriter directAttributeDomains = new BlockWriter();
+        final BlockWriter allAttributeDomains = new BlockWriter();
+        for (int attributeId = 0; attributeId < attributeCount; ++attributeId) {
+            final DataType range = snapshot.getAttributeRange(attributeId);
+            attributeRanges[attributeId] = range == null ? -1 : range.ordinal();
+
+            final String[] values = snapshot.getAttributeEnumeratedValues(attributeId);
+            if (values == null) enumeratedValueIds.addInts(null);
+            else {
+                final int[] valueIds = new int[values.length];
+                for (int index = 0; index < values.length; ++index) {
+                    valueIds[index] = enumeratedValues.size();
+                    enumeratedValues.addString(values[index]);
+                }
+                enumeratedValueIds.addInts(valueIds);
+            }
+
+            directAttributeDomains.addInts(snapshot.getAttributeDomains(attributeId, true));
+            allAttributeDomains.addInts(snapshot.getAttributeDomains(attributeId, false));
+        }
+        writeBlocks(output, new BlockWriter().addInts(attributeRanges), enumeratedValueIds, enumeratedValues,
+                directAttributeDomains, allAttributeDomains);
+
+        final BlockWriter directIndividualClasses = new BlockWriter();
+        final BlockWriter individualTypes = new BlockWriter();
+        for (int individualId = 0; individualId < individualCount; ++individualId) {
+            directIndividualClasses.addInts(snapshot.getIndividualClasses(individualId, true));
+            individualTypes.addInts(snapshot.getIndividualClasses(individualId, false));
+        }
+        writeBlocks(output, directIndividualClasses, individualTypes);
+
+        final BlockWriter relationValues = new BlockWriter();
+        final BlockWriter inverseRelationValues = new BlockWriter();
+        for (int relationId = 0; relationId < relationCount; ++relationId)
+            for (int individualId = 0; individualId < individualCount; ++individualId) {
+                relationValues.addInts(snapshot.getRelationValues(individualId, relationId));
+                inverseRelationValues.addInts(snapshot.getInverseRelationValues(individualId, relationId));
+            }
+        writeBlocks(output, relationValues, inverseRelationValues);
+
+        final int[] literalStarts = new int[attributeCount + 1];
+        final BlockWriter literals = new BlockWriter();
+        final BlockWriter attributeValues = new BlockWriter();
+        final BlockWriter literalHolders = new BlockWriter();
+        for (int attributeId = 0; attributeId < attributeCount; ++attributeId) {
+            final SortedMap<byte[], String> dictionary = new TreeMap<>(BYTE_ORDER);
+            for (int individualId = 0; individualId < individualCount; ++individualId)
+                for (final String value : snapshot.getAttributeValues(individualId, attributeId))
+                    dictionary.put(value.getBytes(StandardCharsets.UTF_8), value);
+
+            final Map<String, Integer> literalIds = new HashMap<>();
+            literalStarts[attributeId] = literals.size();
+            for (final String value : dictionary.values()) {
+                literalIds.put(value, literals.size());
+                literals.addString(value);
+                literalHolders.addInts(snapshot.getAttributeIndividuals(attributeId, value));
+            }
+            literalStarts[attributeId + 1] = literals.size();
+
+            for (int individualId = 0; individualId < individualCount; ++individualId) {
+                final String[] values = snapshot.getAttributeValues(individualId, attributeId);
+                final int[] valueIds = new int[values.length];
+                for (int index = 0; index < values.length; ++index) valueIds[index] = literalIds.get(values[index]);
+                Arrays.sort(valueIds);
+                attributeValues.addInts(valueIds);
+            }
+        }
+        writeBlocks(output, new BlockWriter().addInts(literalStarts), literals, attributeValues, literalHolders);
+    }
+
+    private static void writeTable(@NotNull final EntityTable table, @NotNull final DataOutput output) throws IOException {
+        final BlockWriter names = new BlockWriter();
+        final BlockWriter labels = new BlockWriter();
+        final BlockWriter comments = new BlockWriter();
+        final Set<String> candidateKeys = new HashSet<>();
+        for (int id = 0; id < table.size(); ++id) {
+            names.addString(table.getName(id));
+            labels.addString(table.getLabel(id));
+            comments.addString(table.getComment(id));
+            candidateKeys.add(table.getName(id));
+        }
+        // owl:Thing is looked up as "Thing" even when another entity has that name.
+        candidateKeys.add("Thing");
+
+        final SortedMap<byte[], Integer> lookup = new TreeMap<>(BYTE_ORDER);
+        for (final String key : candidateKeys) {
+            final int id = table.find(key);
+            if (id != NOT_FOUND) lookup.put(key.getBytes(StandardCharsets.UTF_8), id);
+        }
+
+        final BlockWriter keys = new BlockWriter();
+        final int[] keyIds = new int[lookup.size()];
+        int index = 0;
+        for (final Map.Entry<byte[], Integer> entry : lookup.entrySet()) {
+            keys.addBytes(entry.getKey());
+            keyIds[index++] = entry.getValue();
+        }
+
+        writeBlocks(output, names, labels, comments, keys, new BlockWriter().addInts(keyIds));
+    }
+
+    private static void writeBlocks(@NotNull final DataOutput output, @NotNull final BlockWriter... writers) throws IOException {
+        for (final BlockWriter writer : writers) writer.write(output);
+    }
+
+    private final class Table implements EntityTable {
+
+        private final int firstBlock;
+
+        Table(final int firstBlock) {
+            this.firstBlock = firstBlock;
+        }
+
+        @Override
+        public int size() {
+            return blocks[firstBlock].size();
+        }
+
+        @Override
+        public int find(@NotNull final String name) {
+            final int keyIndex = blocks[firstBlock + 3].search(name.getBytes(StandardCharsets.UTF_8), 0, blocks[firstBlock + 3].size());
+
+            return keyIndex < 0 ? NOT_FOUND : blocks[firstBlock + 4].getInt(0, keyIndex);
+        }
+
+        @Override
+        @NotNull
+        public String getName(final int id) {
+            return blocks[firstBlock].getString(id);
+        }
+
+        @Override
+        @Nullable
+        public String getLabel(final int id) {
+            return blocks[firstBlock + 1].getString(id);
+        }
+
+        @Override
+        @Nullable
+        public String getComment(final int id) {
+            return blocks[firstBlock + 2].getString(id);
+        }
+    }
+
+    private static final class Block {
+
+        @NotNull
+        private final ByteBuffer buffer;
+
+        private final int position;
+
+        private final int size;
+
+        private final int data;
+
+        Block(@NotNull final ByteBuffer buffer, final int position) {
+            this.buffer = buffer;
+            this.position = position;
+            size = buffer.getInt(position);
+            data = position + Integer.BYTES * (1 + 2 * size);
+        }
+
+        int size() {
+            return size;
+        }
+
+        int getLength(final int entry) {
+            return buffer.getInt(position + Integer.BYTES * (1 + size + entry));
+        }
+
+        private int getStart(final int entry) {
+            return data + buffer.getInt(position + Integer.BYTES * (1 + entry));
+        }
+
+        int getInt(final int entry, final int index) {
+            return buffer.getInt(getStart(entry) + Integer.BYTES * index);
+        }
+
+        @Nullable
+        int[] getInts(final int entry) {
+            final int length = getLength(entry);
+            if (length < 0) return null;
+
+            final int start = getStart(entry);
+            final int[] values = new int[length];
+            for (int index = 0; index < length; ++index) values[index] = buffer.getInt(start + Integer.BYTES * index);
+
+            return values;
+        }
+
+        boolean getBit(final int entry, final int bit) {
+            final int word = bit / Long.SIZE;
+            if (word >= getLength(entry)) return false;
+
+            return (buffer.getLong(getStart(entry) + Long.BYTES * word) & (1L << bit)) != 0;
+        }
+
+        @NotNull
+        int[] getBits(final int entry) {
+            final int length = getLength(entry);
+            final int start = getStart(entry);
+
+            int count = 0;
+            for (int word = 0; word < length; ++word) count += Long.bitCount(buffer.getLong(start + Long.BYTES * word));
+
+            final int[] bits = new int[count];
+            count = 0;
+            for (int word = 0; word < length; ++word) {
+                long value = buffer.getLong(start + Long.BYTES * word);
+                while (value != 0) {
+                    bits[count++] = word * Long.SIZE + Long.numberOfTrailingZeros(value);
+                    value &= value - 1;
+                }
+            }
+
+            return bits;
+        }
+
+        @Nullable
+        String getString(final int entry) {
+            final int length = getLength(entry);
+            if (length < 0) return null;
+
+            final byte[] bytes = new byte[length];
+            final ByteBuffer view = buffer.duplicate();
+            view.position(getStart(entry));
+            view.get(bytes);
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // Binary search over string entries from first to last, exclusive, which must be sorted in byte order.
+        int search(@NotNull final byte[] key, final int first, final int last) {
+            int low = first;
+            int high = last - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final int comparison = compare(middle, key);
+                if (comparison < 0) low = middle + 1;
+                else if (comparison > 0) high = middle - 1;
+                else return middle;
+            }
+
+            return -1;
+        }
+
+        private int compare(final int entry, @NotNull final byte[] key) {
+            final int length = getLength(entry);
+            final int start = getStart(entry);
+            for (int index = 0; index < length && index < key.length; ++index) {
+                final int difference = (buffer.get(start + index) & 0xff) - (key[index] & 0xff);
+                if (difference != 0) return difference;
+            }
+
+            return length - key.length;
+        }
+    }
+
+    private static final class BlockWriter {
+
+        @NotNull
+        private final List<Integer> starts = new ArrayList<>();
+
+        @NotNull
+        private final List<Integer> lengths = new ArrayList<>();
+
+        @NotNull
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @NotNull
+        private final DataOutputStream data = new DataOutputStream(bytes);
+
+        int size() {
+            return starts.size();
+        }
+
+        @NotNull
+        BlockWriter addInts(@Nullable final int[] values) throws IOException {
+            starts.add(data.size());
+            lengths.add(values == null ? -1 : values.length);
+            if (values != null) for (final int value : values) data.writeInt(value);
+
+            return this;
+        }
+
+        void addBits(@NotNull final int[] bits) throws IOException {
+            final BitSet bitSet = new BitSet();
+            for (final int bit : bits) bitSet.set(bit);
+
+            final long[] words = bitSet.toLongArray();
+            starts.add(data.size());
+            lengths.add(words.length);
+            for (final long word : words) data.writeLong(word);
+        }
+
+        void addString(@Nullable final String value) throws IOException {
+            if (value == null) {
+                starts.add(data.size());
+                lengths.add(-1);
+            } else addBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void addBytes(@NotNull final byte[] value) throws IOException {
+            starts.add(data.size());
+            lengths.add(value.length);
+            data.write(value);
+        }
+
+        void write(@NotNull final DataOutput output) throws IOException {
+            output.writeInt(Integer.BYTES * (1 + 2 * starts.size()) + data.size());
+            output.writeInt(starts.size());
+            for (final int start : starts) output.writeInt(start);
+            for (final int length : lengths) output.writeInt(length);
+            output.write(bytes.toByteArray());
+        }
+    }
+}
@@ -2,488 +2,453 @@ package vn.edu.uit.ontologymanager;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.semanticweb.HermiT.ReasonerFactory;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.ChangeApplied;
 import org.semanticweb.owlapi.reasoner.*;
-import org.semanticweb.owlapi.search.Searcher;
-import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
-import vn.edu.uit.ontologymanager.model.*;
-import vn.edu.uit.ontologymanager.model.Class;
-import vn.edu.uit.server.GetType;
+import org.semanticweb.owlapi.vocab.OWL2Datatype;
+import vn.edu.uit.ontologymanager.model.DataType;
+import vn.edu.uit.server.ChunkWriter;
+import vn.edu.uit.server.NamedThreadFactory;
 import vn.edu.uit.server.Request;
-import vn.edu.uit.server.RequestType;
 import vn.edu.uit.server.Response;
-import vn.edu.uit.shared.Pair;
 
-import java.io.File;
-import java.util.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static vn.edu.uit.ontologymanager.model.DataType.*;
-import static vn.edu.uit.server.GetType.GET_ALL;
-import static vn.edu.uit.server.GetType.GET_DIRECT;
+import static vn.edu.uit.ontologymanager.OntologySnapshot.NOT_FOUND;
 import static vn.edu.uit.server.ResponseType.*;
 
-public class OntologyManager {
+public class OntologyManager implements Closeable {
 
     @NotNull
     private static final Logger LOGGER = Logger.getLogger(OntologyManager.class.getName());
 
     @NotNull
-    private static final String DEFAULT_LANG = "vi";
+    static final String DEFAULT_LANG = "vi";
 
     @NotNull
-    private static final String NAME_ATTRIBUTE = "name";
+    static final String NAME_ATTRIBUTE = "name";
+
+    public static final int DEFAULT_REASONER_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    private static final int BATCH_THREAD_KEEP_ALIVE = 60;
 
     @NotNull
     private final Gson gson;
 
     @NotNull
-    private final OWLDataFactory factory;
+    private final File file;
+
+    @Nullable
+    private final File snapshotFile;
 
     @NotNull
-    private final OWLOntology ontology;
+    private final OWLReasonerFactory reasonerFactory;
 
     @NotNull
-    private final OWLReasoner reasoner;
+    private final ReasonerPool reasonerPool;
 
+    // Batch sub-requests wait for pooled reasoners, so they run on threads of their own rather than on the common
+    // pool that parallel streams share. There are as many as reasoners, and idle ones end.
     @NotNull
-    private final String prefix;
+    private final ThreadPoolExecutor batchExecutor;
 
-    public OntologyManager(@NotNull final File file) throws OWLOntologyCreationException {
-        gson = new GsonBuilder().create();
+    // The ontology and the reasoner stay unloaded while the snapshot comes from a snapshot file. Pooled reasoners ask
+    // for the ontology while a write holds the manager, so it is loaded under a lock of its own.
+    @Nullable
+    private volatile OWLOntology ontology;
 
-        final OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+    @NotNull
+    private final Object ontologyLock = new Object();
 
-        factory = manager.getOWLDataFactory();
-        ontology = manager.loadOntologyFromOntologyDocument(file);
+    @Nullable
+    private OWLReasoner reasoner;
 
-        prefix = ontology.getOntologyID().getOntologyIRI().get() + "#";
+    @Nullable
+    private String prefix;
 
-        final OWLReasonerFactory reasonerFactory = new ReasonerFactory();
-        final ConsoleProgressMonitor progressMonitor = new ConsoleProgressMonitor();
-        final OWLReasonerConfiguration config = new SimpleConfiguration(progressMonitor);
-        reasoner = reasonerFactory.createReasoner(ontology, config);
+    // The hash of the ontology file as the ontology was loaded from it or last saved to it.
+    @Nullable
+    private volatile String fileHash;
 
-        reasoner.precomputeInferences();
-        if (!reasoner.isConsistent()) LOGGER.warning("Ontology is inconsistent.");
+    // Requests being answered. A closed manager is disposed of once the last of them is done.
+    @NotNull
+    private final AtomicInteger activeRequests = new AtomicInteger();
 
-        LOGGER.info("Ontology is loaded.");
-    }
+    private volatile boolean closed;
 
     @NotNull
-    public final String process(@NotNull final String message) {
-        final Request request = gson.fromJson(message, Request.class);
-        final Map<String, Object> data = request.getData();
-
-        Response response;
-        try {
-            final RequestType type = request.getType();
-            switch (type) {
-                case GET_COMMENT:
-                    response = parseComment(data);
-                    break;
-                case GET_CLASS:
-                    response = parseClass(data);
-                    break;
-                case GET_SUPERCLASSES:
-                    response = parseSuperClasses(data);
-                    break;
-                case GET_SUBCLASSES:
-                    response = parseSubClasses(data);
-                    break;
-                case GET_DOMAIN_RELATIONS:
-                    response = parseDomainRelations(data);
-                    break;
-                case GET_RANGE_RELATIONS:
-                    response = parseRangeRelations(data);
-                    break;
-                case GET_CLASS_ATTRIBUTES:
-                    response = parseClassAttributes(data);
-                    break;
-                case GET_CLASS_INDIVIDUALS:
-                    response = parseClassIndividuals(data);
-                    break;
-                case GET_RELATION:
-                    response = parseRelation(data);
-                    break;
-                case GET_RELATIONS:
-                    response = parseRelations();
-                    break;
-                case GET_INVERSE_RELATION:
-                    response = parseInverseRelation(data);
-                    break;
-                case GET_RELATION_DOMAINS:
-                    response = parseRelationDomains(data);
-                    break;
-                case GET_RELATION_RANGES:
-                    response = parseRelationRanges(data);
-                    break;
-                case GET_ATTRIBUTE:
-                    response = parseAttribute(data);
-                    break;
-                case GET_ATTRIBUTES:
-                    response = parseAttributes();
-                    break;
-                case GET_ATTRIBUTE_DOMAINS:
-                    response = parseAttributeDomains(data);
-                    break;
-                case GET_INDIVIDUAL:
-                    response = parseIndividual(data);
-                    break;
-                case GET_INDIVIDUALS:
-                    response = parseIndividuals();
-                    break;
-                case GET_INDIVIDUAL_CLASSES:
-                    response = parseIndividualClasses(data);
-                    break;
-                case GET_RELATION_VALUE:
-                    response = parseRelationValue(data);
-                    break;
-                case GET_RELATION_VALUES:
-                    response = parseRelationValues(data);
-                    break;
-                case GET_ATTRIBUTE_VALUES:
-                    response = parseAttributeValues(data);
-                    break;
-                case GET_ATTRIBUTE_VALUES_BY_ATTRIBUTE_NAME:
-                    response = parseAttributeValuesByAttributeName(data);
-                    break;
-                default:
-                    response = new Response.Builder(FAIL).message("Unknown request query type \"" + gson.toJson(type, RequestType.class) + "\".").build();
-            }
+    private final AtomicBoolean disposed = new AtomicBoolean();
 
-            return gson.toJson(response, Response.class);
-        } catch (final Exception e) {
-            LOGGER.log(Level.SEVERE, e.toString(), e);
+    // Queries never lock: each one reads the current reader once and answers from its snapshot. Writes publish a
+    // new reader with a new snapshot.
+    @NotNull
+    private volatile SnapshotReader reader;
 
-            response = new Response.Builder(ERROR).message(e.toString()).build();
+    public OntologyManager(@NotNull final File file) throws OWLOntologyCreationException {
+        this(file, null);
+    }
 
-            return gson.toJson(response);
-        }
+    // With a snapshot file, a snapshot saved from the same ontology file is loaded instead of reasoning, and a
+    // missing or outdated one is replaced after reasoning.
+    public OntologyManager(@NotNull final File file, @Nullable final File snapshotFile) throws OWLOntologyCreationException {
+        this(file, snapshotFile, new ReasonerFactory());
     }
 
-    @NotNull
-    private Response parseComment(@NotNull final Map<String, Object> data) {
-        final String objectName = (String) data.get("Object");
+    public OntologyManager(@NotNull final File file, @Nullable final File snapshotFile,
+                           @NotNull final OWLReasonerFactory reasonerFactory) throws OWLOntologyCreationException {
+        this(file, snapshotFile, reasonerFactory, DEFAULT_REASONER_POOL_SIZE, false);
+    }
 
-        OWLNamedObject owlObject = getOWLRelation(objectName);
-        if (owlObject == null) owlObject = getOWLAttribute(objectName);
+    public OntologyManager(@NotNull final File file, @Nullable final File snapshotFile,
+                           @NotNull final OWLReasonerFactory reasonerFactory, final int reasonerPoolSize,
+                           final boolean warmUpReasonerPool) throws OWLOntologyCreationException {
+        gson = new GsonBuilder().create();
+        this.file = file;
+        this.snapshotFile = snapshotFile;
+        this.reasonerFactory = reasonerFactory;
+        reasonerPool = new ReasonerPool(reasonerFactory, this::getOntology, reasonerPoolSize);
+        batchExecutor = new ThreadPoolExecutor(reasonerPoolSize, reasonerPoolSize, BATCH_THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory("ontology-batch"));
+        batchExecutor.allowCoreThreadTimeOut(true);
+
+        String hash = null;
+        OntologySnapshot savedSnapshot = null;
+        if (snapshotFile != null) {
+            try {
+                // Answers depend on the reasoner too, so snapshots of different reasoners never match. The factory
+                // class names the reasoner, since HermiT reports no reasoner name.
+                hash = SnapshotFile.hash(file, reasonerFactory.getClass().getName());
+                savedSnapshot = SnapshotFile.read(snapshotFile, hash);
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, e.toString(), e);
+            }
+        }
 
-        final Response.Builder builder;
-        if (owlObject == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Object \"" + owlObject + "\" not found.");
+        if (savedSnapshot != null) {
+            reader = new SnapshotReader(gson, savedSnapshot, reasonerPool, batchExecutor);
+            LOGGER.info("Ontology snapshot is loaded from \"" + snapshotFile + "\".");
         } else {
-            final String comment = getComment(owlObject);
+            load();
 
-            if (comment == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Comment of \"" + objectName + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("Comment", comment);
-            }
+            if (hash != null) saveSnapshot(snapshotFile, hash, reader.getSnapshot());
         }
 
-        return builder.build();
+        if (warmUpReasonerPool) reasonerPool.warmUp();
     }
 
-    @NotNull
-    private Response parseClass(@NotNull final Map<String, Object> data) {
-        final String className = (String) data.get("Class");
+    private void load() throws OWLOntologyCreationException {
+        final OWLOntology ontology = loadOntology();
 
-        final OWLClass owlClass = getOWLClass(className);
+        final ConsoleProgressMonitor progressMonitor = new ConsoleProgressMonitor();
+        final OWLReasonerConfiguration config = new SimpleConfiguration(progressMonitor);
+        final OWLReasoner reasoner = reasonerFactory.createReasoner(ontology, config);
 
-        final Response.Builder builder;
-        if (owlClass == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Class \"" + className + "\" not found.");
-        } else {
-            final Class cls = getClass(owlClass);
+        reasoner.precomputeInferences();
+        if (!reasoner.isConsistent()) LOGGER.warning("Ontology is inconsistent.");
 
-            builder = new Response.Builder(SUCCESS);
-            builder.data("Class", cls);
-        }
+        reader = new SnapshotReader(gson, new HeapSnapshot.Builder(ontology, reasoner, prefix).build(), reasonerPool,
+                batchExecutor);
+        this.reasoner = reasoner;
 
-        return builder.build();
+        LOGGER.info("Ontology is loaded.");
     }
 
     @NotNull
-    private Response parseSuperClasses(@NotNull final Map<String, Object> data) {
-        final String className = (String) data.get("Class");
-        final GetType getSuperClassType = gson.fromJson((String) data.get("GetSuperClassType"), GetType.class);
-
-        final OWLClass owlClass = getOWLClass(className);
-
-        final Response.Builder builder;
-        if (owlClass == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Class \"" + className + "\" not found.");
-        } else {
-            final Set<Class> superClasses = getSuperClasses(owlClass, getSuperClassType);
+    public final String process(@NotNull final String message) {
+        final Request request;
+        try {
+            request = gson.fromJson(message, Request.class);
+        } catch (final JsonParseException e) {
+            LOGGER.log(Level.WARNING, e.toString(), e);
 
-            if (superClasses == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Super classes of \"" + className + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("SuperClasses", superClasses);
-            }
+            return gson.toJson(new Response.Builder(ERROR).message(e.toString()).build(), Response.class);
         }
 
-        return builder.build();
+        return gson.toJson(process(request), Response.class);
     }
 
     @NotNull
-    private Response parseSubClasses(@NotNull final Map<String, Object> data) {
-        final String className = (String) data.get("Class");
-        final GetType getSubClassType = gson.fromJson((String) data.get("GetSubClassType"), GetType.class);
-
-        final OWLClass owlClass = getOWLClass(className);
-
-        final Response.Builder builder;
-        if (owlClass == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Class \"" + className + "\" not found.");
-        } else {
-            final Set<Class> subClasses = getSubClasses(owlClass, getSubClassType);
+    public final Response process(@NotNull final Request request) {
+        activeRequests.incrementAndGet();
+        try {
+            if (request.getType() != null && request.getType().isWrite())
+                return SnapshotReader.withId(write(request), request.getId());
 
-            if (subClasses == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Sub classes of \"" + className + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("SubClasses", subClasses);
-            }
+            return reader.process(request);
+        } finally {
+            finishRequest();
         }
-
-        return builder.build();
     }
 
+    // Large results are written in chunks as they are built instead of being collected into one response. Other
+    // request types have nothing to stream and are answered by the returned response alone.
     @NotNull
-    private Response parseDomainRelations(@NotNull final Map<String, Object> data) {
-        final String className = (String) data.get("Class");
+    public final Response stream(@NotNull final Request request, final int chunkSize,
+                                 @NotNull final ChunkWriter writer) throws IOException {
+        if (request.getType() != null && request.getType().isWrite()) return process(request);
 
-        final OWLClass owlClass = getOWLClass(className);
-
-        final Response.Builder builder;
-        if (owlClass == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Class \"" + className + "\" not found.");
-        } else {
-            final Set<Relation> relations = new HashSet<>();
+        activeRequests.incrementAndGet();
+        try {
+            return reader.stream(request, chunkSize, writer);
+        } finally {
+            finishRequest();
+        }
+    }
 
-            for (final OWLObjectProperty owlRelation : ontology.getObjectPropertiesInSignature()) {
-                if (owlRelation.isOWLTopDataProperty()) continue;
+    // Requests that already got the manager are still answered, and its reasoners are disposed of once they are
+    // done. The batch threads end on their own once idle.
+    @Override
+    public void close() {
+        closed = true;
+        if (activeRequests.get() == 0) dispose();
+    }
 
-                final Set<Class> domains = getRelationDomains(owlRelation, GET_ALL);
-                if (domains != null)
-                    for (final Class domain : domains)
-                        if (domain.getId().equals(className)) {
-                            final Relation relation = getRelation(owlRelation);
+    private void finishRequest() {
+        if (activeRequests.decrementAndGet() == 0 && closed) dispose();
+    }
 
-                            relations.add(relation);
-                            break;
-                        }
-            }
+    private void dispose() {
+        if (!disposed.compareAndSet(false, true)) return;
 
-            if (relations.isEmpty()) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Relations of domain \"" + className + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("DomainRelations", relations);
-            }
+        reasonerPool.close();
+        synchronized (this) {
+            if (reasoner != null) reasoner.dispose();
+            reasoner = null;
         }
 
-        return builder.build();
+        LOGGER.info("Ontology manager is disposed of.");
     }
 
+    // Writers take turns, and the reasoners are only touched by the writer holding the lock. Readers never wait:
+    // they keep answering from the previous snapshot until the one with the change is published.
     @NotNull
-    private Response parseRangeRelations(@NotNull final Map<String, Object> data) {
-        final String className = (String) data.get("Class");
-
-        final OWLClass owlClass = getOWLClass(className);
+    private synchronized Response write(@NotNull final Request request) {
+        final Map<String, Object> data = request.getData();
+        final List<OWLOntologyChange> appliedChanges = new ArrayList<>();
 
-        final Response.Builder builder;
-        if (owlClass == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Class \"" + className + "\" not found.");
-        } else {
-            final Set<Relation> relations = new HashSet<>();
+        try {
+            // A closed manager has been replaced, so its changes would be lost.
+            if (closed) throw new IllegalStateException("Ontology manager is closed.");
 
-            for (final OWLObjectProperty owlRelation : ontology.getObjectPropertiesInSignature()) {
-                if (owlRelation.isOWLTopDataProperty()) continue;
+            // A snapshot loaded from a snapshot file has no reasoner to apply changes to yet.
+            if (reasoner == null) load();
 
-                final Set<Class> ranges = getRelationRanges(owlRelation, GET_ALL);
-                if (ranges != null)
-                    for (final Class range : ranges)
-                        if (range.getId().equals(className)) {
-                            final Relation relation = getRelation(owlRelation);
+            final List<OWLOntologyChange> changes = new ArrayList<>();
 
-                            relations.add(relation);
-                            break;
-                        }
+            final Response response;
+            switch (request.getType()) {
+                case ADD_INDIVIDUAL:
+                    response = parseAddIndividual(data, changes);
+                    break;
+                case ADD_CLASS_ASSERTION:
+                    response = parseAddClassAssertion(data, changes);
+                    break;
+                case SET_ATTRIBUTE_VALUE:
+                    response = parseSetAttributeValue(data, changes);
+                    break;
+                case ADD_RELATION_VALUE:
+                    response = parseAddRelationValue(data, changes);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown write request type \"" + request.getType() + "\".");
             }
 
-            if (relations.isEmpty()) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Relations of range \"" + className + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("RangeRelations", relations);
-            }
-        }
+            if (!changes.isEmpty()) {
+                // Only changes that did something are undone if the write fails, so an axiom the ontology already
+                // had is not removed.
+                for (final OWLOntologyChange change : changes)
+                    if (ontology.getOWLOntologyManager().applyChange(change) == ChangeApplied.SUCCESSFULLY)
+                        appliedChanges.add(change);
 
-        return builder.build();
-    }
+                // A buffering reasoner takes in the changes incrementally on flush.
+                reasoner.flush();
+                reasoner.precomputeInferences();
+                final OntologySnapshot snapshot = new HeapSnapshot.Builder(ontology, reasoner, prefix).build();
 
-    @NotNull
-    private Response parseClassAttributes(@NotNull final Map<String, Object> data) {
-        final String className = (String) data.get("Class");
+                // A write that cannot be saved is rolled back, so the file always has every accepted write.
+                save(snapshot);
+                reasonerPool.update();
+                reader = new SnapshotReader(gson, snapshot, reasonerPool, batchExecutor);
 
-        final OWLClass owlClass = getOWLClass(className);
+                LOGGER.info("Ontology snapshot is rebuilt after " + changes.size() + " changes.");
+            }
 
-        final Response.Builder builder;
-        if (owlClass == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Class \"" + className + "\" not found.");
-        } else {
-            final Set<Attribute> attributes = getClassAttributes(owlClass);
+            return response;
+        } catch (final Exception e) {
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            if (!appliedChanges.isEmpty()) rollBack(appliedChanges);
 
-            if (attributes == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Attributes of \"" + className + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("ClassAttributes", attributes);
-            }
+            return new Response.Builder(ERROR).message(e.toString()).build();
         }
-
-        return builder.build();
     }
 
-    @NotNull
-    private Response parseClassIndividuals(@NotNull final Map<String, Object> data) {
-        final String className = (String) data.get("Class");
-        final GetType getIndividualType = gson.fromJson((String) data.get("GetIndividualType"), GetType.class);
-
-        final OWLClass owlClass = getOWLClass(className);
+    // A failed write leaves the published snapshot as it was, so the ontology and the reasoners are put back to match
+    // it. Pooled reasoners may already have taken in the changes, so they move on to another generation too.
+    private void rollBack(@NotNull final List<OWLOntologyChange> appliedChanges) {
+        final List<OWLOntologyChange> reverseChanges = new ArrayList<>();
+        for (int index = appliedChanges.size() - 1; index >= 0; --index)
+            reverseChanges.add(appliedChanges.get(index).reverseChange());
 
-        final Response.Builder builder;
-        if (owlClass == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Class \"" + className + "\" not found.");
-        } else {
-            final Set<Individual> individuals = getClassIndividuals(owlClass, getIndividualType);
+        try {
+            ontology.getOWLOntologyManager().applyChanges(reverseChanges);
+            reasoner.flush();
+            reasoner.precomputeInferences();
+            reasonerPool.update();
 
-            if (individuals == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Individuals of \"" + className + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("ClassIndividuals", individuals);
-            }
+            LOGGER.info(reverseChanges.size() + " changes are rolled back.");
+        } catch (final RuntimeException e) {
+            LOGGER.log(Level.SEVERE, e.toString(), e);
         }
-
-        return builder.build();
     }
 
-    @NotNull
-    private Response parseRelation(@NotNull final Map<String, Object> data) {
-        final String relationName = (String) data.get("Relation");
+    // The ontology is written next to its file and moved over it, so the file is never half written. A file changed
+    // since it was loaded is not overwritten, so an edit made meanwhile is not lost. The snapshot file is saved with
+    // it, so the next start does not load the snapshot of the old file.
+    private void save(@NotNull final OntologySnapshot snapshot) throws IOException, OWLOntologyStorageException {
+        if (!SnapshotFile.hash(file, "").equals(fileHash))
+            throw new IOException("Ontology file \"" + file + "\" is changed since it was loaded.");
 
-        final OWLObjectProperty owlRelation = getOWLRelation(relationName);
+        final OWLOntologyManager manager = ontology.getOWLOntologyManager();
+        final File temporaryFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            try (final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(temporaryFile))) {
+                manager.saveOntology(ontology, manager.getOntologyFormat(ontology), outputStream);
+            }
 
-        final Response.Builder builder;
-        if (owlRelation == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Relation \"" + relationName + "\" not found.");
-        } else {
-            final Relation relation = getRelation(owlRelation);
+            final String fileHash = SnapshotFile.hash(temporaryFile, "");
+            final String snapshotHash = snapshotFile == null ? null : SnapshotFile.hash(temporaryFile, reasonerFactory.getClass().getName());
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.fileHash = fileHash;
+            LOGGER.info("Ontology is saved to \"" + file + "\".");
 
-            builder = new Response.Builder(SUCCESS);
-            builder.data("Relation", relation);
+            if (snapshotHash != null) saveSnapshot(snapshotFile, snapshotHash, snapshot);
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
         }
+    }
 
-        return builder.build();
+    // A snapshot file that cannot be saved only costs reasoning on the next start.
+    private static void saveSnapshot(@NotNull final File snapshotFile, @NotNull final String hash, @NotNull final OntologySnapshot snapshot) {
+        try {
+            SnapshotFile.write(snapshotFile, hash, snapshot);
+            LOGGER.info("Ontology snapshot is saved to \"" + snapshotFile + "\".");
+        } catch (final IOException e) {
+            LOGGER.log(Level.WARNING, e.toString(), e);
+        }
     }
 
     @NotNull
-    private Response parseRelations() {
-        final Set<Relation> relations = new HashSet<>();
-
-        for (final OWLObjectProperty owlRelation : ontology.getObjectPropertiesInSignature()) {
-            if (owlRelation.isOWLTopDataProperty()) continue;
+    private Response parseAddIndividual(@NotNull final Map<String, Object> data, @NotNull final List<OWLOntologyChange> changes) {
+        final String individualName = (String) data.get("Individual");
+        final String className = (String) data.get("Class");
+        final String label = (String) data.get("Label");
 
-            final Relation relation = getRelation(owlRelation);
-            relations.add(relation);
-        }
+        final OntologySnapshot snapshot = reader.getSnapshot();
 
         final Response.Builder builder;
-        if (relations.isEmpty()) {
+        if (individualName == null || individualName.isEmpty()) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Individual name is empty.");
+        } else if (snapshot.getIndividuals().find(individualName) != NOT_FOUND) {
             builder = new Response.Builder(FAIL);
-            builder.message("Relations not found.");
+            builder.message("Individual \"" + individualName + "\" already exists.");
+        } else if (className != null && snapshot.getClasses().find(className) == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class \"" + className + "\" not found.");
         } else {
+            final OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+            final OWLNamedIndividual owlIndividual = factory.getOWLNamedIndividual(IRI.create(prefix, individualName));
+
+            changes.add(new AddAxiom(ontology, factory.getOWLDeclarationAxiom(owlIndividual)));
+            if (className != null)
+                changes.add(new AddAxiom(ontology, factory.getOWLClassAssertionAxiom(getOWLClass(factory, className), owlIndividual)));
+            if (label != null) {
+                final OWLAnnotation owlLabel = factory.getOWLAnnotation(factory.getRDFSLabel(), factory.getOWLLiteral(label, DEFAULT_LANG));
+                changes.add(new AddAxiom(ontology, factory.getOWLAnnotationAssertionAxiom(owlIndividual.getIRI(), owlLabel)));
+            }
+
             builder = new Response.Builder(SUCCESS);
-            builder.data("Relations", relations);
         }
 
         return builder.build();
     }
 
     @NotNull
-    private Response parseInverseRelation(@NotNull final Map<String, Object> data) {
-        final String relationName = (String) data.get("Relation");
+    private Response parseAddClassAssertion(@NotNull final Map<String, Object> data, @NotNull final List<OWLOntologyChange> changes) {
+        final String individualName = (String) data.get("Individual");
+        final String className = (String) data.get("Class");
 
-        final OWLObjectProperty owlRelation = getOWLRelation(relationName);
+        final OntologySnapshot snapshot = reader.getSnapshot();
 
         final Response.Builder builder;
-        if (owlRelation == null) {
+        if (snapshot.getIndividuals().find(individualName) == NOT_FOUND) {
             builder = new Response.Builder(FAIL);
-            builder.message("Relation \"" + relationName + "\" not found.");
+            builder.message("Individual \"" + individualName + "\" not found.");
+        } else if (snapshot.getClasses().find(className) == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class \"" + className + "\" not found.");
         } else {
-            final OWLObjectProperty owlInverseRelation = getOWLInverseRelation(owlRelation);
+            final OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+            final OWLNamedIndividual owlIndividual = factory.getOWLNamedIndividual(IRI.create(prefix, individualName));
 
-            if (owlInverseRelation == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Inverse relation of \"" + relationName + "\" not found.");
-            } else {
-                final Relation relation = getRelation(owlInverseRelation);
+            changes.add(new AddAxiom(ontology, factory.getOWLClassAssertionAxiom(getOWLClass(factory, className), owlIndividual)));
 
-                builder = new Response.Builder(SUCCESS);
-                builder.data("InverseRelation", relation);
-            }
+            builder = new Response.Builder(SUCCESS);
         }
 
         return builder.build();
     }
 
+    // The new value replaces all values the individual has for the attribute, and no value removes them.
     @NotNull
-    private Response parseRelationDomains(@NotNull final Map<String, Object> data) {
-        final String relationName = (String) data.get("Relation");
-        final GetType getDomainType = gson.fromJson((String) data.get("GetDomainType"), GetType.class);
+    private Response parseSetAttributeValue(@NotNull final Map<String, Object> data, @NotNull final List<OWLOntologyChange> changes) {
+        final String individualName = (String) data.get("Individual");
+        final String attributeName = (String) data.get("Attribute");
+        final String value = (String) data.get("Value");
 
-        final OWLObjectProperty owlRelation = getOWLRelation(relationName);
+        final OntologySnapshot snapshot = reader.getSnapshot();
+        final int attributeId = snapshot.getAttributes().find(attributeName);
 
         final Response.Builder builder;
-        if (owlRelation == null) {
+        if (snapshot.getIndividuals().find(individualName) == NOT_FOUND) {
             builder = new Response.Builder(FAIL);
-            builder.message("Relation \"" + relationName + "\" not found.");
+            builder.message("Individual \"" + individualName + "\" not found.");
+        } else if (attributeId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Attribute \"" + attributeName + "\" not found.");
         } else {
-            final Set<Class> domains = getRelationDomains(owlRelation, getDomainType);
+            final OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+            final OWLNamedIndividual owlIndividual = factory.getOWLNamedIndividual(IRI.create(prefix, individualName));
+            final OWLDataProperty owlAttribute = factory.getOWLDataProperty(IRI.create(prefix, attributeName));
 
-            if (domains == null) {
+            final OWLLiteral owlValue = value == null ? null : getOWLLiteral(factory, owlAttribute, snapshot.getAttributeRange(attributeId), value);
+            if (value != null && owlValue == null) {
                 builder = new Response.Builder(FAIL);
-                builder.message("Domains of \"" + relationName + "\" not found.");
+                builder.message("Value \"" + value + "\" is not in the range of \"" + attributeName + "\".");
             } else {
+                for (final OWLDataPropertyAssertionAxiom owlAxiom : ontology.getDataPropertyAssertionAxioms(owlIndividual))
+                    if (owlAxiom.getProperty().equals(owlAttribute)) changes.add(new RemoveAxiom(ontology, owlAxiom));
+                if (owlValue != null)
+                    changes.add(new AddAxiom(ontology, factory.getOWLDataPropertyAssertionAxiom(owlAttribute, owlIndividual, owlValue)));
+
                 builder = new Response.Builder(SUCCESS);
-                builder.data("RelationDomains", domains);
             }
         }
 
@@ -491,679 +456,113 @@ public class OntologyManager {
     }
 
     @NotNull
-    private Response parseRelationRanges(@NotNull final Map<String, Object> data) {
+    private Response parseAddRelationValue(@NotNull final Map<String, Object> data, @NotNull final List<OWLOntologyChange> changes) {
+        final String individualName = (String) data.get("Individual");
         final String relationName = (String) data.get("Relation");
-        final GetType getRangeType = gson.fromJson((String) data.get("GetRangeType"), GetType.class);
+        final String valueName = (String) data.get("Value");
 
-        final OWLObjectProperty owlRelation = getOWLRelation(relationName);
+        final OntologySnapshot snapshot = reader.getSnapshot();
 
         final Response.Builder builder;
-        if (owlRelation == null) {
+        if (snapshot.getIndividuals().find(individualName) == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Individual \"" + individualName + "\" not found.");
+        } else if (snapshot.getRelations().find(relationName) == NOT_FOUND) {
             builder = new Response.Builder(FAIL);
             builder.message("Relation \"" + relationName + "\" not found.");
+        } else if (snapshot.getIndividuals().find(valueName) == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Individual \"" + valueName + "\" not found.");
         } else {
-            final Set<Class> ranges = getRelationRanges(owlRelation, getRangeType);
+            final OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+            final OWLObjectPropertyAssertionAxiom owlAxiom = factory.getOWLObjectPropertyAssertionAxiom(
+                    factory.getOWLObjectProperty(IRI.create(prefix, relationName)),
+                    factory.getOWLNamedIndividual(IRI.create(prefix, individualName)),
+                    factory.getOWLNamedIndividual(IRI.create(prefix, valueName)));
+            changes.add(new AddAxiom(ontology, owlAxiom));
 
-            if (ranges == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Ranges of \"" + relationName + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("RelationRanges", ranges);
-            }
+            builder = new Response.Builder(SUCCESS);
         }
 
         return builder.build();
     }
 
+    // The hierarchy names owl:Thing "Thing", like the snapshot does.
     @NotNull
-    private Response parseAttribute(@NotNull final Map<String, Object> data) {
-        final String attributeName = (String) data.get("Attribute");
-
-        final OWLDataProperty owlAttribute = getOWLAttribute(attributeName);
-
-        final Response.Builder builder;
-        if (owlAttribute == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Attribute \"" + attributeName + "\" not found.");
-        } else {
-            final Attribute attribute = getAttribute(owlAttribute);
-
-            builder = new Response.Builder(SUCCESS);
-            builder.data("Attribute", attribute);
-        }
+    private OWLClass getOWLClass(@NotNull final OWLDataFactory factory, @NotNull final String className) {
+        if (className.equals("Thing")) return factory.getOWLThing();
 
-        return builder.build();
+        return factory.getOWLClass(IRI.create(prefix, className));
     }
 
-    @NotNull
-    private Response parseAttributes() {
-        final Set<Attribute> attributes = new HashSet<>();
+    // Values are typed like the existing values of the attribute. Returns null for a value outside its range.
+    @Nullable
+    private OWLLiteral getOWLLiteral(@NotNull final OWLDataFactory factory, @NotNull final OWLDataProperty owlAttribute,
+                                     @Nullable final DataType range, @NotNull final String value) {
+        if (range == null) return factory.getOWLLiteral(value);
+
+        switch (range) {
+            case INT:
+                try {
+                    return factory.getOWLLiteral(String.valueOf(Integer.parseInt(value)), OWL2Datatype.XSD_INT);
+                } catch (final NumberFormatException e) {
+                    return null;
+                }
+            case BOOLEAN:
+                if (!value.equals("true") && !value.equals("false")) return null;
+                return factory.getOWLLiteral(Boolean.parseBoolean(value));
+            case ENUMERATED:
+                for (final OWLDataPropertyRangeAxiom owlAxiom : ontology.getDataPropertyRangeAxioms(owlAttribute))
+                    if (owlAxiom.getRange() instanceof OWLDataOneOf)
+                        for (final OWLLiteral owlLiteral : ((OWLDataOneOf) owlAxiom.getRange()).getValues())
+                            if (owlLiteral.getLiteral().equals(value)) return owlLiteral;
+                return null;
+            default:
+                return factory.getOWLLiteral(value);
+        }
+    }
+
+    // A snapshot loaded from a snapshot file leaves the ontology unloaded until a query needs live reasoning or a
+    // request changes the ontology.
+    @NotNull
+    private OWLOntology loadOntology() throws OWLOntologyCreationException {
+        OWLOntology ontology = this.ontology;
+        if (ontology != null) return ontology;
+
+        synchronized (ontologyLock) {
+            ontology = this.ontology;
+            if (ontology == null) {
+                // The file is hashed before it is loaded, so a change made while loading is seen as a change.
+                try {
+                    fileHash = SnapshotFile.hash(file, "");
+                } catch (final IOException e) {
+                    throw new OWLOntologyCreationException(e);
+                }
 
-        for (final OWLDataProperty owlAttribute : ontology.getDataPropertiesInSignature()) {
-            if (owlAttribute.isOWLTopDataProperty()) continue;
+                // Pooled reasoners read the ontology from many threads at once.
+                final OWLOntologyManager manager = OWLManager.createConcurrentOWLOntologyManager();
+                ontology = manager.loadOntologyFromOntologyDocument(file);
 
-            final Attribute attribute = getAttribute(owlAttribute);
-            attributes.add(attribute);
+                // The prefix is set before the ontology is published, so whoever sees the ontology sees the prefix.
+                prefix = ontology.getOntologyID().getOntologyIRI().get() + "#";
+                this.ontology = ontology;
+            }
         }
 
-        final Response.Builder builder;
-        if (attributes.isEmpty()) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Attributes not found.");
-        } else {
-            builder = new Response.Builder(SUCCESS);
-            builder.data("Attributes", attributes);
-        }
+        return ontology;
+    }
 
-        return builder.build();
+    @Nullable
+    String getFileHash() {
+        return fileHash;
     }
 
     @NotNull
-    private Response parseAttributeDomains(@NotNull final Map<String, Object> data) {
-        final String attributeName = (String) data.get("Attribute");
-        final GetType getDomainType = gson.fromJson((String) data.get("GetDomainType"), GetType.class);
-
-        final OWLDataProperty owlAttribute = getOWLAttribute(attributeName);
-
-        final Response.Builder builder;
-        if (owlAttribute == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Attribute \"" + attributeName + "\" not found.");
-        } else {
-            final Set<Class> domains = getAttributeDomains(owlAttribute, getDomainType);
-
-            if (domains == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Domains of \"" + attributeName + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("AttributeDomains", domains);
-            }
-        }
-
-        return builder.build();
-    }
-
-    @NotNull
-    private Response parseIndividual(@NotNull final Map<String, Object> data) {
-        final String individualName = (String) data.get("Individual");
-
-        final OWLNamedIndividual owlIndividual = getOWLIndividual(individualName);
-
-        final Response.Builder builder;
-        if (owlIndividual == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Individual \"" + individualName + "\" not found.");
-        } else {
-            final Individual individual = getIndividual(owlIndividual);
-
-            builder = new Response.Builder(SUCCESS);
-            builder.data("Individual", individual);
-        }
-
-        return builder.build();
-    }
-
-    @NotNull
-    private Response parseIndividuals() {
-        final Set<Individual> individuals = new HashSet<>();
-
-        for (final OWLNamedIndividual owlIndividual : ontology.getIndividualsInSignature()) {
-            final Individual individual = getIndividual(owlIndividual);
-            individuals.add(individual);
-        }
-
-        final Response.Builder builder;
-        if (individuals.isEmpty()) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Individuals not found.");
-        } else {
-            builder = new Response.Builder(SUCCESS);
-            builder.data("Individuals", individuals);
-        }
-
-        return builder.build();
-    }
-
-    @NotNull
-    private Response parseIndividualClasses(@NotNull final Map<String, Object> data) {
-        final String individualName = (String) data.get("Individual");
-        final GetType getClassType = gson.fromJson((String) data.get("GetClassType"), GetType.class);
-
-        final OWLNamedIndividual owlIndividual = getOWLIndividual(individualName);
-
-        final Response.Builder builder;
-        if (owlIndividual == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Individual \"" + individualName + "\" not found.");
-        } else {
-            final Set<Class> classes = getIndividualClasses(owlIndividual, getClassType);
-
-            if (classes == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Classes of \"" + individualName + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                if (getClassType == GET_DIRECT)
-                    builder.data("IndividualClass", classes.iterator().next());
-                else builder.data("IndividualClasses", classes);
-            }
-        }
-
-        return builder.build();
-    }
-
-    @NotNull
-    private Response parseRelationValue(@NotNull final Map<String, Object> data) {
-        final String individualName = (String) data.get("Individual");
-        final String relationName = (String) data.get("Relation");
-
-        final OWLNamedIndividual owlIndividual = getOWLIndividual(individualName);
-        final OWLObjectProperty owlRelation = getOWLRelation(relationName);
-
-        final Response.Builder builder;
-        if (owlIndividual == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Individual \"" + individualName + "\" not found.");
-        } else if (owlRelation == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Relation \"" + relationName + "\" not found.");
-        } else {
-            final List<Individual> relationValue = getRelationValue(owlIndividual, owlRelation);
-
-            if (relationValue == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Relation value \"" + relationName + "\" of \"" + individualName + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("RelationValue", relationValue);
-            }
-        }
-
-        return builder.build();
-    }
-
-    @NotNull
-    private Response parseRelationValues(@NotNull final Map<String, Object> data) {
-        final String individualName = (String) data.get("Individual");
-
-        final OWLNamedIndividual owlIndividual = getOWLIndividual(individualName);
-
-        final Response.Builder builder;
-        if (owlIndividual == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Individual \"" + individualName + "\" not found.");
-        } else {
-            final Set<Pair<Relation, List<Individual>>> relationValues = getRelationValues(owlIndividual);
-
-            if (relationValues == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Relation values of \"" + individualName + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("RelationValues", relationValues);
-            }
-        }
-
-        return builder.build();
-    }
-
-    @NotNull
-    private Response parseAttributeValues(@NotNull final Map<String, Object> data) {
-        final String individualName = (String) data.get("Individual");
-
-        final OWLNamedIndividual owlIndividual = getOWLIndividual(individualName);
-
-        final Response.Builder builder;
-        if (owlIndividual == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Individual \"" + individualName + "\" not found.");
-        } else {
-            final Set<Pair<Attribute, List<String>>> attributeValues = getAttributeValues(owlIndividual);
-
-            if (attributeValues == null) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Attributes values of \"" + individualName + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("AttributeValues", attributeValues);
-            }
-        }
-
-        return builder.build();
-    }
-
-    @NotNull
-    private Response parseAttributeValuesByAttributeName(@NotNull final Map<String, Object> data) {
-        final String individualName = (String) data.get("Individual");
-        final String attributeName = (String) data.get("Attribute");
-
-        final OWLNamedIndividual owlIndividual = getOWLIndividual(individualName);
-
-        final Response.Builder builder;
-        if (owlIndividual == null) {
-            builder = new Response.Builder(FAIL);
-            builder.message("Individual \"" + individualName + "\" not found.");
-        } else {
-            final List<String> values = new ArrayList<>();
-
-            final OWLDataProperty owlAttribute = factory.getOWLDataProperty(IRI.create(prefix, attributeName));
-            final Set<OWLLiteral> owlLiterals = reasoner.getDataPropertyValues(owlIndividual, owlAttribute);
-            for (final OWLLiteral owlLiteral : owlLiterals)
-                values.add(owlLiteral.getLiteral());
-
-            if (values.isEmpty()) {
-                builder = new Response.Builder(FAIL);
-                builder.message("Attribute \"" + attributeName + "\" values of \"" + individualName + "\" not found.");
-            } else {
-                builder = new Response.Builder(SUCCESS);
-                builder.data("AttributeValues", values);
-            }
-        }
-
-        return builder.build();
-    }
-
-    @NotNull
-    private Class getClass(@NotNull final OWLClass owlClass) {
-        final String classLabel = getLabel(owlClass);
-        final Class.Builder builder = new Class.Builder(owlClass.getIRI().getShortForm(), classLabel);
-
-        return builder.build();
-    }
-
-    @Nullable
-    private Set<Class> getSuperClasses(@NotNull final OWLClass owlClass, @NotNull final GetType getSuperClassType) {
-        final Set<Class> superClasses = new HashSet<>();
-
-        final Set<OWLClass> owlSuperClasses = reasoner.getSuperClasses(owlClass, getSuperClassType == GET_DIRECT).getFlattened();
-        for (final OWLClass owlSuperClass : owlSuperClasses) {
-
-            final String superClassName = owlSuperClass.getIRI().getShortForm();
-            final String superClassLabel = getLabel(owlSuperClass);
-            final Class superClass = new Class.Builder(superClassName, superClassLabel).build();
-
-            superClasses.add(superClass);
-        }
-
-        return superClasses.isEmpty() ? null : superClasses;
-    }
-
-    @Nullable
-    private Set<Class> getSubClasses(@NotNull final OWLClass owlClass, @NotNull final GetType getSubClassType) {
-        final Set<Class> subClasses = new HashSet<>();
-
-        final Set<OWLClass> owlSubClasses = reasoner.getSubClasses(owlClass, getSubClassType == GET_DIRECT).getFlattened();
-        for (final OWLClass owlSubClass : owlSubClasses) {
-            if (owlSubClass.isOWLNothing()) continue;
-
-            final String subClassName = owlSubClass.getIRI().getShortForm();
-            final String subClassLabel = getLabel(owlSubClass);
-            final Class subClass = new Class.Builder(subClassName, subClassLabel).build();
-
-            subClasses.add(subClass);
-        }
-
-        return subClasses.isEmpty() ? null : subClasses;
-    }
-
-    @Nullable
-    private Set<Attribute> getClassAttributes(@NotNull final OWLClass owlClass) {
-        final Set<Attribute> attributes = new HashSet<>();
-
-        for (final OWLDataProperty owlAttribute : ontology.getDataPropertiesInSignature()) {
-            if (owlAttribute.isOWLTopDataProperty()) continue;
-
-            final Set<Class> domains = getAttributeDomains(owlAttribute, GET_ALL);
-            if (domains == null) continue;
-
-            for (final Class domain : domains) {
-                if (domain.getId().equals(owlClass.getIRI().getShortForm())) {
-
-                    final Attribute attribute = getAttribute(owlAttribute);
-                    attributes.add(attribute);
-
-                    break;
-                }
-            }
-        }
-
-        return attributes.isEmpty() ? null : attributes;
-    }
-
-    @Nullable
-    private Set<Individual> getClassIndividuals(@NotNull final OWLClass owlClass, @NotNull final GetType getIndividualType) {
-        final Set<Individual> individuals = new HashSet<>();
-
-        final Set<OWLNamedIndividual> owlIndividuals = reasoner.getInstances(owlClass, getIndividualType == GET_DIRECT).getFlattened();
-        for (final OWLNamedIndividual owlIndividual : owlIndividuals) {
-            final Individual individual = getIndividual(owlIndividual);
-            individuals.add(individual);
-        }
-
-        return individuals.isEmpty() ? null : individuals;
-    }
-
-    @NotNull
-    private Relation getRelation(@NotNull final OWLObjectProperty owlRelation) {
-        final String relationLabel = getLabel(owlRelation);
-        final Relation.Builder builder = new Relation.Builder(owlRelation.getIRI().getShortForm(), relationLabel);
-
-        return builder.build();
-    }
-
-    @Nullable
-    private Set<Class> getRelationDomains(@NotNull final OWLObjectProperty owlRelation, @NotNull final GetType getDomainType) {
-        final Set<OWLObjectPropertyDomainAxiom> owlAxioms = ontology.getObjectPropertyDomainAxioms(owlRelation);
-        if (owlAxioms.size() != 1) return null;
-
-        final OWLClassExpression owlDomainExpression = owlAxioms.iterator().next().getDomain();
-        Set<OWLClass> owlDomains = owlDomainExpression.getClassesInSignature();
-
-        final Set<Class> domains = new HashSet<>();
-        if (owlDomains.size() == 1) {
-            if (getDomainType == GET_ALL) {
-                final OWLClass owlSuperDomain = owlDomains.iterator().next();
-                final Class domain = getClass(owlSuperDomain);
-                domains.add(domain);
-
-                owlDomains = reasoner.getSubClasses(owlSuperDomain, false).getFlattened();
-            }
-        } else owlDomains = reasoner.getSubClasses(owlDomainExpression, getDomainType == GET_DIRECT).getFlattened();
-
-        for (final OWLClass owlDomain : owlDomains) {
-            if (owlDomain.isOWLNothing()) continue;
-
-            final Class domain = getClass(owlDomain);
-            domains.add(domain);
-        }
-
-        return domains.isEmpty() ? null : domains;
-    }
-
-    @Nullable
-    private Set<Class> getRelationRanges(@NotNull final OWLObjectProperty owlRelation, @NotNull final GetType getRangeType) {
-        final Set<OWLObjectPropertyRangeAxiom> owlAxioms = ontology.getObjectPropertyRangeAxioms(owlRelation);
-        if (owlAxioms.size() != 1) return null;
-
-        final OWLClassExpression owlRangeExpression = owlAxioms.iterator().next().getRange();
-        Set<OWLClass> owlRanges = owlRangeExpression.getClassesInSignature();
-
-        final Set<Class> ranges = new HashSet<>();
-        if (owlRanges.size() == 1) {
-            if (getRangeType == GET_ALL) {
-                final OWLClass owlSuperRange = owlRanges.iterator().next();
-                final Class range = getClass(owlSuperRange);
-                ranges.add(range);
-
-                owlRanges = reasoner.getSubClasses(owlSuperRange, false).getFlattened();
-            }
-        } else owlRanges = reasoner.getSubClasses(owlRangeExpression, getRangeType == GET_DIRECT).getFlattened();
-
-        for (final OWLClass owlRange : owlRanges) {
-            if (owlRange.isOWLNothing()) continue;
-
-            final Class range = getClass(owlRange);
-            ranges.add(range);
-        }
-
-        return ranges.isEmpty() ? null : ranges;
-    }
-
-    @NotNull
-    private Attribute getAttribute(@NotNull final OWLDataProperty owlAttribute) {
-        final String attributeLabel = getLabel(owlAttribute);
-        final Attribute.Builder builder = new Attribute.Builder(owlAttribute.getIRI().getShortForm(), attributeLabel);
-
-        final Pair<DataType, List<String>> pair = getAttributeRange(owlAttribute);
-        if (pair != null) {
-            builder.range(pair.getLeft());
-            if (pair.getLeft() == ENUMERATED) builder.enumeratedValues(pair.getRight());
-        }
-
-        return builder.build();
-    }
-
-    @Nullable
-    private Set<Class> getAttributeDomains(@NotNull final OWLDataProperty owlAttribute, @NotNull final GetType getDomainType) {
-        final Set<OWLDataPropertyDomainAxiom> owlAxioms = ontology.getDataPropertyDomainAxioms(owlAttribute);
-        if (owlAxioms.size() != 1) return null;
-
-        final OWLClassExpression owlDomainExpression = owlAxioms.iterator().next().getDomain();
-        Set<OWLClass> owlDomains = owlDomainExpression.getClassesInSignature();
-
-        final Set<Class> domains = new HashSet<>();
-        if (owlDomains.size() == 1) {
-            if (getDomainType == GET_ALL) {
-                final OWLClass owlSuperDomain = owlDomains.iterator().next();
-                final Class domain = getClass(owlSuperDomain);
-                domains.add(domain);
-
-                owlDomains = reasoner.getSubClasses(owlSuperDomain, false).getFlattened();
-            }
-        } else owlDomains = reasoner.getSubClasses(owlDomainExpression, getDomainType == GET_DIRECT).getFlattened();
-
-        for (final OWLClass owlDomain : owlDomains) {
-            if (owlDomain.isOWLNothing()) continue;
-
-            final Class domain = getClass(owlDomain);
-            domains.add(domain);
-        }
-
-        return domains.isEmpty() ? null : domains;
-    }
-
-    @Nullable
-    private Pair<DataType, List<String>> getAttributeRange(@NotNull final OWLDataProperty owlAttribute) {
-        final Set<OWLDataPropertyRangeAxiom> owlAxioms = ontology.getDataPropertyRangeAxioms(owlAttribute);
-        if (owlAxioms.size() != 1) return null;
-
-        final OWLDataRange owlDataRange = owlAxioms.iterator().next().getRange();
-        if (owlDataRange.isDatatype()) {
-            final OWLDatatype owlDataType = owlDataRange.asOWLDatatype();
-
-            final DataType range;
-            if (owlDataType.isString()) range = STRING;
-            else if (owlDataType.isBoolean()) range = BOOLEAN;
-            else {
-                final String owlDataTypeName = owlDataType.getIRI().getShortForm();
-
-                if (owlDataTypeName.equals("int")) range = INT;
-                else range = UNKNOWN;
-            }
-
-            return new Pair<>(range, null);
-        } else if (owlDataRange instanceof OWLDataOneOf) {
-            final List<String> ranges = new ArrayList<>();
-            for (final OWLLiteral owlLiteral : ((OWLDataOneOf) owlDataRange).getValues())
-                ranges.add(owlLiteral.getLiteral());
-
-            return new Pair<>(ENUMERATED, ranges);
-        } else return new Pair<>(UNKNOWN, null);
-    }
-
-    @NotNull
-    private Individual getIndividual(@NotNull final OWLNamedIndividual owlIndividual) {
-        String individualLabel = null;
-
-        final OWLDataProperty owlAttribute = factory.getOWLDataProperty(IRI.create(prefix, NAME_ATTRIBUTE));
-        final Set<OWLLiteral> owlLiterals = reasoner.getDataPropertyValues(owlIndividual, owlAttribute);
-        if (owlLiterals.size() != 0) individualLabel = owlLiterals.iterator().next().getLiteral();
-
-        final Individual.Builder builder = new Individual.Builder(owlIndividual.getIRI().getShortForm(), individualLabel);
-
-        return builder.build();
-    }
-
-    @Nullable
-    private Set<Class> getIndividualClasses(@NotNull final OWLNamedIndividual owlIndividual, @NotNull final GetType getClassType) {
-        final Set<OWLClassAssertionAxiom> owlAxioms = ontology.getClassAssertionAxioms(owlIndividual);
-        if (owlAxioms.size() != 1) return null;
-
-        final Set<Class> classes = new HashSet<>();
-
-        final Set<OWLClass> owlClasses;
-        if (getClassType == GET_DIRECT) {
-            owlClasses = owlAxioms.iterator().next().getClassesInSignature();
-            if (owlClasses.size() != 1) return null;
-        } else owlClasses = reasoner.getTypes(owlIndividual, false).getFlattened();
-
-        for (final OWLClass owlClass : owlClasses) {
-            if (owlClass.isOWLThing()) continue;
-
-            final String className = owlClass.getIRI().getShortForm();
-            final String classLabel = getLabel(owlClass);
-            final Class cls = new Class.Builder(className, classLabel).build();
-
-            classes.add(cls);
-        }
-
-        return classes;
-    }
-
-    @Nullable
-    private Set<Pair<Relation, List<Individual>>> getRelationValues(@NotNull final OWLNamedIndividual owlIndividual) {
-        final Set<Pair<Relation, List<Individual>>> relationValues = new HashSet<>();
-
-        for (final OWLObjectProperty owlRelation : ontology.getObjectPropertiesInSignature()) {
-            final Set<OWLNamedIndividual> owlIndividualValues = reasoner.getObjectPropertyValues(owlIndividual, owlRelation).getFlattened();
-            if (owlIndividualValues.size() == 0) continue;
-
-            final Relation key = getRelation(owlRelation);
-
-            final List<Individual> values = new ArrayList<>();
-            for (final OWLNamedIndividual owlIndividualValue : owlIndividualValues) {
-                final Individual individual = getIndividual(owlIndividualValue);
-
-                values.add(individual);
-            }
-
-            relationValues.add(new Pair<>(key, values));
-        }
-
-        return relationValues.isEmpty() ? null : relationValues;
-    }
-
-    @Nullable
-    private List<Individual> getRelationValue(@NotNull final OWLNamedIndividual owlIndividual, @NotNull final OWLObjectProperty owlRelation) {
-
-        final Set<OWLNamedIndividual> owlIndividualValues = reasoner.getObjectPropertyValues(owlIndividual, owlRelation).getFlattened();
-        if (owlIndividualValues.size() == 0) return null;
-
-        final List<Individual> values = new ArrayList<>();
-        for (final OWLNamedIndividual owlIndividualValue : owlIndividualValues) {
-            final Individual individual = getIndividual(owlIndividualValue);
-
-            values.add(individual);
-        }
-
-        return values;
-    }
-
-    @Nullable
-    private Set<Pair<Attribute, List<String>>> getAttributeValues(@NotNull final OWLNamedIndividual owlIndividual) {
-        final Set<Pair<Attribute, List<String>>> attributeValues = new HashSet<>();
-
-        for (final OWLDataProperty owlAttribute : ontology.getDataPropertiesInSignature()) {
-            final Set<OWLLiteral> owlLiterals = reasoner.getDataPropertyValues(owlIndividual, owlAttribute);
-            if (owlLiterals.size() == 0) continue;
-
-            final Attribute key = getAttribute(owlAttribute);
-
-            final List<String> values = new ArrayList<>();
-            for (final OWLLiteral owlLiteral : owlLiterals) {
-                values.add(owlLiteral.getLiteral());
-            }
-
-            attributeValues.add(new Pair<>(key, values));
-        }
-
-        return attributeValues.isEmpty() ? null : attributeValues;
-    }
-
-    @Nullable
-    private String getLabel(@NotNull final OWLNamedObject owlObject) {
-        final OWLAnnotationProperty rdfsLabel = factory.getOWLAnnotationProperty(OWLRDFVocabulary.RDFS_LABEL.getIRI());
-
-        String label = null;
-        for (final OWLAnnotation annotation : Searcher.annotationObjects(ontology.getAnnotationAssertionAxioms(owlObject.getIRI()), rdfsLabel)) {
-            if (annotation.getValue() instanceof OWLLiteral) {
-                final OWLLiteral value = (OWLLiteral) annotation.getValue();
-                label = value.getLiteral();
-                if (value.hasLang(DEFAULT_LANG)) break;
-            }
-        }
-
-        return label;
-    }
-
-    @Nullable
-    private String getComment(@NotNull final OWLNamedObject owlObject) {
-        final OWLAnnotationProperty rdfsComment = factory.getOWLAnnotationProperty(OWLRDFVocabulary.RDFS_COMMENT.getIRI());
-
-        String label = null;
-        for (final OWLAnnotation annotation : Searcher.annotationObjects(ontology.getAnnotationAssertionAxioms(owlObject.getIRI()), rdfsComment)) {
-            if (annotation.getValue() instanceof OWLLiteral) {
-                final OWLLiteral value = (OWLLiteral) annotation.getValue();
-                label = value.getLiteral();
-                if (value.hasLang(DEFAULT_LANG)) break;
-            }
-        }
-
-        return label;
-    }
-
-    @Nullable
-    private OWLClass getOWLClass(@NotNull final String className) {
-        final OWLClass owlClass;
-
-        if (className.equals("Thing")) owlClass = factory.getOWLThing();
-        else {
-            owlClass = factory.getOWLClass(IRI.create(prefix, className));
-            if (!ontology.containsClassInSignature(owlClass.getIRI())) return null;
+    private OWLOntology getOntology() {
+        try {
+            return loadOntology();
+        } catch (final OWLOntologyCreationException e) {
+            throw new IllegalStateException(e);
         }
-
-        return owlClass;
-    }
-
-    @Nullable
-    private OWLObjectProperty getOWLInverseRelation(@NotNull final OWLObjectProperty owlRelation) {
-        final Set<OWLObjectPropertyExpression> owlInverseRelations = reasoner.getInverseObjectProperties(owlRelation).getEntities();
-
-        if (owlInverseRelations.size() == 2) {
-            OWLObjectPropertyExpression owlInverseRelation = null;
-            for (final OWLObjectPropertyExpression owlInverseRelationExpression : owlInverseRelations) {
-                if (owlInverseRelationExpression.getNamedProperty().getIRI().getShortForm().equals(owlRelation.getIRI().getShortForm()))
-                    continue;
-                owlInverseRelation = owlInverseRelationExpression;
-                break;
-            }
-            return owlInverseRelation.asOWLObjectProperty();
-        } else return null;
-    }
-
-    @Nullable
-    private OWLObjectProperty getOWLRelation(@NotNull final String relationName) {
-        final OWLObjectProperty owlRelation = factory.getOWLObjectProperty(IRI.create(prefix, relationName));
-        if (!ontology.containsObjectPropertyInSignature(owlRelation.getIRI())) return null;
-
-        return owlRelation;
-    }
-
-    @Nullable
-    private OWLDataProperty getOWLAttribute(@NotNull final String attributeName) {
-        final OWLDataProperty owlAttribute = factory.getOWLDataProperty(IRI.create(prefix, attributeName));
-        if (!ontology.containsDataPropertyInSignature(owlAttribute.getIRI())) return null;
-
-        return owlAttribute;
-    }
-
-    @Nullable
-    private OWLNamedIndividual getOWLIndividual(@NotNull final String individualName) {
-        final OWLNamedIndividual owlIndividual = factory.getOWLNamedIndividual(IRI.create(prefix, individualName));
-        if (!ontology.containsIndividualInSignature(owlIndividual.getIRI())) return null;
-
-        return owlIndividual;
     }
 }
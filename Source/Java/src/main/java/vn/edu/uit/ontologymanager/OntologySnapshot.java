@@ -0,0 +1,103 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import vn.edu.uit.ontologymanager.model.DataType;
+
+// Everything the queries read, computed once after classification. Entities of each kind get dense ids in the order
+// of their names, so sorted id arrays are also sorted by name.
+interface OntologySnapshot {
+
+    int NOT_FOUND = -1;
+
+    @NotNull
+    EntityTable getClasses();
+
+    @NotNull
+    EntityTable getRelations();
+
+    @NotNull
+    EntityTable getAttributes();
+
+    @NotNull
+    EntityTable getIndividuals();
+
+    @NotNull
+    int[] getSuperClasses(int classId, boolean direct);
+
+    @NotNull
+    int[] getSubClasses(int classId, boolean direct);
+
+    boolean isSubClass(int subClassId, int superClassId);
+
+    @NotNull
+    int[] getClassIndividuals(int classId, boolean direct);
+
+    // Relations whose domains or ranges, subclasses included, cover the class.
+    @NotNull
+    int[] getDomainRelations(int classId);
+
+    @NotNull
+    int[] getRangeRelations(int classId);
+
+    int getInverseRelation(int relationId);
+
+    // Domains and ranges are null when the property has no single domain or range axiom.
+    @Nullable
+    int[] getRelationDomains(int relationId, boolean direct);
+
+    @Nullable
+    int[] getRelationRanges(int relationId, boolean direct);
+
+    // Attributes whose domains, subclasses included, cover the class.
+    @NotNull
+    int[] getClassAttributes(int classId);
+
+    @Nullable
+    DataType getAttributeRange(int attributeId);
+
+    @Nullable
+    String[] getAttributeEnumeratedValues(int attributeId);
+
+    @Nullable
+    int[] getAttributeDomains(int attributeId, boolean direct);
+
+    // Classes are null when the individual has no single class assertion.
+    @Nullable
+    int[] getIndividualClasses(int individualId, boolean direct);
+
+    @NotNull
+    int[] getIndividualRelations(int individualId);
+
+    @NotNull
+    int[] getRelationValues(int individualId, int relationId);
+
+    // Individuals whose values of the relation include the given individual.
+    @NotNull
+    int[] getInverseRelationValues(int individualId, int relationId);
+
+    @NotNull
+    int[] getIndividualAttributes(int individualId);
+
+    @NotNull
+    String[] getAttributeValues(int individualId, int attributeId);
+
+    @NotNull
+    int[] getAttributeIndividuals(int attributeId, @NotNull String value);
+
+    interface EntityTable {
+
+        int size();
+
+        int find(@NotNull String name);
+
+        @NotNull
+        String getName(int id);
+
+        @Nullable
+        String getLabel(int id);
+
+        @Nullable
+        String getComment(int id);
+    }
+}
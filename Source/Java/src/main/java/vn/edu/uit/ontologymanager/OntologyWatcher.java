@@ -0,0 +1,148 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Watches an ontology file and loads a new manager whenever the file changes. The old manager keeps answering while
+// the new one is loaded on the watcher thread, and is replaced only once the new one is ready, so no request waits
+// or fails during a reload. Requests that got the old manager finish against it before it is disposed of. Writes
+// are saved to the file, and a file saved by the current manager is not reloaded, since the manager already has its
+// changes.
+public final class OntologyWatcher implements Supplier<OntologyManager>, Closeable {
+
+    // Editors often save a file in several steps, so a reload waits until the file has been quiet for this long.
+    public static final int DEFAULT_QUIET_PERIOD = 500;
+
+    @NotNull
+    private static final Logger LOGGER = Logger.getLogger(OntologyWatcher.class.getName());
+
+    @NotNull
+    private final File file;
+
+    @NotNull
+    private final Loader loader;
+
+    private final int quietPeriod;
+
+    @NotNull
+    private final WatchService watchService;
+
+    @NotNull
+    private final Thread thread;
+
+    @NotNull
+    private String hash;
+
+    @NotNull
+    private volatile OntologyManager manager;
+
+    public OntologyWatcher(@NotNull final File file, @NotNull final Loader loader) throws OWLOntologyCreationException, IOException {
+        this(file, loader, DEFAULT_QUIET_PERIOD);
+    }
+
+    public OntologyWatcher(@NotNull final File file, @NotNull final Loader loader, final int quietPeriod)
+            throws OWLOntologyCreationException, IOException {
+        this.file = file.getAbsoluteFile();
+        this.loader = loader;
+        this.quietPeriod = quietPeriod;
+
+        // The file is hashed before it is loaded, so a change made while loading is seen as a change.
+        hash = SnapshotFile.hash(this.file, "");
+        manager = loader.load();
+
+        // A file cannot be watched by itself, only the directory it is in.
+        watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParentFile().toPath().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(this::watch, "ontology-watcher");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+        LOGGER.info("Watching \"" + file + "\" for changes.");
+    }
+
+    @Override
+    @NotNull
+    public OntologyManager get() {
+        return manager;
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!isChanged(watchService.take())) continue;
+
+                WatchKey key;
+                while ((key = watchService.poll(quietPeriod, TimeUnit.MILLISECONDS)) != null) isChanged(key);
+
+                reload();
+            }
+        } catch (final InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.info("Stopped watching \"" + file + "\".");
+        }
+    }
+
+    // Events of other files in the directory are ignored.
+    private boolean isChanged(@NotNull final WatchKey key) {
+        boolean changed = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            final Object context = event.context();
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || context instanceof Path && ((Path) context).getFileName().toString().equals(file.getName()))
+                changed = true;
+        }
+        key.reset();
+
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            // Touching the file or saving it unchanged does not reload it.
+            if (!file.isFile()) return;
+            final String hash = SnapshotFile.hash(file, "");
+            if (hash.equals(this.hash)) return;
+            if (hash.equals(manager.getFileHash())) {
+                this.hash = hash;
+                return;
+            }
+
+            LOGGER.info("Ontology file \"" + file + "\" is changed, loading it.");
+            final long start = System.nanoTime();
+            final OntologyManager manager = loader.load();
+            final OntologyManager oldManager = this.manager;
+            this.hash = hash;
+            this.manager = manager;
+            oldManager.close();
+            LOGGER.info("Ontology is reloaded in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+        } catch (final Exception e) {
+            // A broken file leaves the old ontology in place until the file is fixed.
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+
+        @NotNull
+        OntologyManager load() throws OWLOntologyCreationException;
+    }
+}
@@ -0,0 +1,270 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.expression.ShortFormEntityChecker;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+import org.semanticweb.owlapi.util.BidirectionalShortFormProvider;
+import org.semanticweb.owlapi.util.BidirectionalShortFormProviderAdapter;
+import org.semanticweb.owlapi.util.SimpleShortFormProvider;
+import org.semanticweb.owlapi.util.mansyntax.ManchesterOWLSyntaxParser;
+import vn.edu.uit.shared.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Reasoners for the queries a snapshot cannot answer, such as arbitrary class expressions. A reasoner is not safe
+// for concurrent use, so each query checks one out and returns it when done. Reasoners are created on demand up to
+// the pool size, or all at once when the pool is warmed up, and queries wait once all of them are checked out. The
+// ontology is only asked for once a query needs it.
+final class ReasonerPool {
+
+    @NotNull
+    private static final Logger LOGGER = Logger.getLogger(ReasonerPool.class.getName());
+
+    @NotNull
+    private final OWLReasonerFactory reasonerFactory;
+
+    @NotNull
+    private final Supplier<OWLOntology> ontology;
+
+    private final int size;
+
+    @NotNull
+    private final BlockingQueue<OWLReasoner> idleReasoners;
+
+    @NotNull
+    private final AtomicInteger createdReasoners = new AtomicInteger();
+
+    // Queries blocked until a reasoner is released.
+    @NotNull
+    private final AtomicInteger waitingQueries = new AtomicInteger();
+
+    // Every change of the ontology starts a new generation. A buffering reasoner may only be flushed while the
+    // ontology is not changing, so idle reasoners are flushed by the writer, and a reasoner that missed a change
+    // while it was checked out is dropped instead.
+    private volatile long generation;
+
+    @NotNull
+    private final Map<OWLReasoner, Long> generations = new ConcurrentHashMap<>();
+
+    // Short forms of every entity, and the generation they were made for. Making them walks the whole ontology, so
+    // they are kept until the ontology changes.
+    @Nullable
+    private volatile Pair<Long, BidirectionalShortFormProvider> shortForms;
+
+    private volatile boolean closed;
+
+    @NotNull
+    private final LongAdder checkouts = new LongAdder();
+
+    @NotNull
+    private final LongAdder waits = new LongAdder();
+
+    @NotNull
+    private final LongAdder waitNanos = new LongAdder();
+
+    @NotNull
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    ReasonerPool(@NotNull final OWLReasonerFactory reasonerFactory, @NotNull final Supplier<OWLOntology> ontology,
+                 final int size) {
+        if (size < 1) throw new IllegalArgumentException("Reasoner pool size must be positive.");
+
+        this.reasonerFactory = reasonerFactory;
+        this.ontology = ontology;
+        this.size = size;
+        idleReasoners = new ArrayBlockingQueue<>(size);
+    }
+
+    void warmUp() {
+        OWLReasoner reasoner;
+        while ((reasoner = tryCreateReasoner()) != null) idleReasoners.add(reasoner);
+
+        LOGGER.info("Reasoner pool is warmed up with " + size + " reasoners.");
+    }
+
+    @NotNull
+    OWLReasoner checkout() throws InterruptedException {
+        checkouts.increment();
+
+        OWLReasoner reasoner;
+        while ((reasoner = idleReasoners.poll()) != null)
+            if (isCurrent(reasoner)) return reasoner;
+        if ((reasoner = tryCreateReasoner()) != null) return reasoner;
+
+        // An outdated reasoner that is taken or released frees its place, so a waiting query tries to fill it.
+        final long start = System.nanoTime();
+        waitingQueries.incrementAndGet();
+        try {
+            while ((reasoner = tryCreateReasoner()) == null) {
+                reasoner = idleReasoners.take();
+                if (isCurrent(reasoner)) break;
+            }
+        } finally {
+            waitingQueries.decrementAndGet();
+        }
+        final long wait = System.nanoTime() - start;
+
+        waits.increment();
+        waitNanos.add(wait);
+        maxWaitNanos.accumulate(wait);
+
+        return reasoner;
+    }
+
+    void release(@NotNull final OWLReasoner reasoner) {
+        if (isCurrent(reasoner)) {
+            idleReasoners.add(reasoner);
+            // A reasoner released while the pool closes is disposed of with the idle ones.
+            if (closed) disposeIdleReasoners();
+            return;
+        }
+
+        // Queries waiting for this reasoner would never see it, so a current one takes its place.
+        if (waitingQueries.get() == 0) return;
+        try {
+            final OWLReasoner replacement = tryCreateReasoner();
+            if (replacement != null) idleReasoners.add(replacement);
+        } catch (final RuntimeException e) {
+            LOGGER.log(Level.WARNING, e.toString(), e);
+        }
+    }
+
+    // Called by the thread that changed the ontology, after the change.
+    void update() {
+        final long generation = this.generation + 1;
+        this.generation = generation;
+
+        final List<OWLReasoner> reasoners = new ArrayList<>();
+        idleReasoners.drainTo(reasoners);
+        for (final OWLReasoner reasoner : reasoners) {
+            reasoner.flush();
+            generations.put(reasoner, generation);
+            idleReasoners.add(reasoner);
+        }
+
+        if (shortForms != null) shortForms = createShortForms(generation);
+    }
+
+    // Idle reasoners are disposed of now and checked out ones once they are released. A query that still reaches a
+    // closed pool is answered as before, by a reasoner that is disposed of after it.
+    void close() {
+        closed = true;
+        disposeIdleReasoners();
+    }
+
+    // Names in expressions are entity names as the rest of the API uses them. A parser keeps the text it parses, so
+    // every expression gets its own, but they all share the short forms.
+    @NotNull
+    OWLClassExpression parse(@NotNull final String expression) {
+        final long generation = this.generation;
+        Pair<Long, BidirectionalShortFormProvider> shortForms = this.shortForms;
+        if (shortForms == null || shortForms.getLeft() != generation) {
+            shortForms = createShortForms(generation);
+            this.shortForms = shortForms;
+        }
+
+        final ManchesterOWLSyntaxParser parser = OWLManager.createManchesterParser();
+        parser.setDefaultOntology(ontology.get());
+        parser.setOWLEntityChecker(new ShortFormEntityChecker(shortForms.getRight()));
+
+        return parser.parseClassExpression(expression);
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getCreatedReasoners() {
+        return createdReasoners.get();
+    }
+
+    int getIdleReasoners() {
+        return idleReasoners.size();
+    }
+
+    long getCheckouts() {
+        return checkouts.sum();
+    }
+
+    long getWaits() {
+        return waits.sum();
+    }
+
+    double getAverageWaitMillis() {
+        final long waitCount = waits.sum();
+
+        return waitCount == 0 ? 0 : (double) waitNanos.sum() / waitCount / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    double getMaxWaitMillis() {
+        return (double) maxWaitNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    // An outdated reasoner is disposed of, which makes room for a new one.
+    private boolean isCurrent(@NotNull final OWLReasoner reasoner) {
+        final Long reasonerGeneration = generations.get(reasoner);
+        if (reasonerGeneration != null && reasonerGeneration == generation) return true;
+
+        generations.remove(reasoner);
+        createdReasoners.decrementAndGet();
+        reasoner.dispose();
+
+        return false;
+    }
+
+    private void disposeIdleReasoners() {
+        OWLReasoner reasoner;
+        while ((reasoner = idleReasoners.poll()) != null) {
+            generations.remove(reasoner);
+            createdReasoners.decrementAndGet();
+            reasoner.dispose();
+        }
+    }
+
+    // The provider is only read once it is made, so parsers on different threads can share it.
+    @NotNull
+    private Pair<Long, BidirectionalShortFormProvider> createShortForms(final long generation) {
+        return new Pair<>(generation, new BidirectionalShortFormProviderAdapter(ontology.get().getImportsClosure(),
+                new SimpleShortFormProvider()));
+    }
+
+    // Returns null once the pool has created all its reasoners.
+    @Nullable
+    private OWLReasoner tryCreateReasoner() {
+        int created;
+        do {
+            created = createdReasoners.get();
+            if (created == size) return null;
+        } while (!createdReasoners.compareAndSet(created, created + 1));
+
+        try {
+            // A change made while the reasoner loads the ontology leaves it a generation behind.
+            final long generation = this.generation;
+            final OWLReasoner reasoner = reasonerFactory.createReasoner(ontology.get());
+            reasoner.precomputeInferences();
+            generations.put(reasoner, generation);
+
+            return reasoner;
+        } catch (final RuntimeException e) {
+            createdReasoners.decrementAndGet();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import vn.edu.uit.ontologymanager.OntologySnapshot.EntityTable;
+import vn.edu.uit.ontologymanager.model.EntityType;
+import vn.edu.uit.shared.StringUtils;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static vn.edu.uit.ontologymanager.OntologySnapshot.NOT_FOUND;
+import static vn.edu.uit.ontologymanager.model.EntityType.*;
+
+// An inverted index over the text of a snapshot: labels, comments and the long text attributes of individuals.
+// Vietnamese words are written syllable by syllable, so every syllable is a term, and terms are compared without
+// accents or case. Every entity is a document, numbered kind after kind in the order of TYPES.
+final class SearchIndex {
+
+    @NotNull
+    private static final List<String> TEXT_ATTRIBUTES = Arrays.asList("definition", "article", "trieuChung", "dacDiem");
+
+    @NotNull
+    private static final EntityType[] TYPES = {CLASS, RELATION, ATTRIBUTE, INDIVIDUAL};
+
+    private static final float LABEL_WEIGHT = 4;
+
+    private static final float COMMENT_WEIGHT = 2;
+
+    private static final float TEXT_WEIGHT = 1;
+
+    @NotNull
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Documents of TYPES[i] are numbered from offsets[i] to offsets[i + 1].
+    @NotNull
+    private final int[] offsets = new int[TYPES.length + 1];
+
+    // Labels as their terms joined by spaces, for matching a query against a whole label.
+    @NotNull
+    private final String[] labels;
+
+    @NotNull
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    SearchIndex(@NotNull final OntologySnapshot snapshot) {
+        final EntityTable[] tables = {snapshot.getClasses(), snapshot.getRelations(), snapshot.getAttributes(), snapshot.getIndividuals()};
+        for (int type = 0; type < TYPES.length; ++type) offsets[type + 1] = offsets[type] + tables[type].size();
+        labels = new String[offsets[TYPES.length]];
+
+        final EntityTable attributeTable = snapshot.getAttributes();
+        final List<Integer> textAttributeIds = new ArrayList<>();
+        for (final String attributeName : TEXT_ATTRIBUTES) {
+            final int attributeId = attributeTable.find(attributeName);
+            if (attributeId != NOT_FOUND) textAttributeIds.add(attributeId);
+        }
+
+        final Map<String, PostingsBuilder> builders = new HashMap<>();
+        for (int type = 0; type < TYPES.length; ++type) {
+            final EntityTable table = tables[type];
+            for (int id = 0; id < table.size(); ++id) {
+                final int document = offsets[type] + id;
+
+                // Entities without a label are shown by their name, so their name is searched instead.
+                final String label = table.getLabel(id);
+                final List<String> labelTerms = tokenize(label == null ? table.getName(id) : label);
+                labels[document] = String.join(" ", labelTerms);
+
+                final Map<String, Float> weights = new HashMap<>();
+                addTerms(weights, labelTerms, LABEL_WEIGHT);
+                final String comment = table.getComment(id);
+                if (comment != null) addTerms(weights, tokenize(comment), COMMENT_WEIGHT);
+                if (TYPES[type] == INDIVIDUAL)
+                    for (final int attributeId : textAttributeIds)
+                        for (final String value : snapshot.getAttributeValues(id, attributeId))
+                            addTerms(weights, tokenize(value), TEXT_WEIGHT);
+
+                for (final Map.Entry<String, Float> entry : weights.entrySet())
+                    builders.computeIfAbsent(entry.getKey(), term -> new PostingsBuilder()).add(document, entry.getValue());
+            }
+        }
+
+        for (final Map.Entry<String, PostingsBuilder> entry : builders.entrySet())
+            postings.put(entry.getKey(), entry.getValue().build());
+    }
+
+    // Matching documents, best first. A document matches if it has any term of the query; terms that few documents
+    // have count for more, and so do documents with more of the query terms and labels that are or start with the
+    // query.
+    @NotNull
+    int[] search(@NotNull final String query, @Nullable final EntityType type) {
+        final List<String> terms = tokenize(query);
+        final Set<String> uniqueTerms = new LinkedHashSet<>(terms);
+        if (uniqueTerms.isEmpty()) return new int[0];
+
+        final int typeIndex = Arrays.asList(TYPES).indexOf(type);
+        final int from = type == null ? 0 : offsets[typeIndex];
+        final int to = type == null ? offsets[TYPES.length] : offsets[typeIndex + 1];
+
+        final float[] scores = new float[labels.length];
+        final int[] matches = new int[labels.length];
+        final List<Integer> documents = new ArrayList<>();
+        for (final String term : uniqueTerms) {
+            final Postings termPostings = postings.get(term);
+            if (termPostings == null) continue;
+
+            final double idf = Math.log(1 + (double) labels.length / termPostings.documents.length);
+            for (int index = 0; index < termPostings.documents.length; ++index) {
+                final int document = termPostings.documents[index];
+                if (document < from || document >= to) continue;
+
+                if (matches[document]++ == 0) documents.add(document);
+                scores[document] += idf * termPostings.weights[index];
+            }
+        }
+
+        final String phrase = String.join(" ", terms);
+        for (final int document : documents) {
+            scores[document] *= (float) matches[document] / uniqueTerms.size();
+            if (labels[document].equals(phrase)) scores[document] *= 2;
+            else if (labels[document].startsWith(phrase)) scores[document] *= 1.5f;
+        }
+
+        // Equal scores keep document order, which is kind and then name order.
+        documents.sort((first, second) -> {
+            final int order = Float.compare(scores[second], scores[first]);
+            return order != 0 ? order : Integer.compare(first, second);
+        });
+
+        return documents.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @NotNull
+    EntityType getType(final int document) {
+        return TYPES[getTypeIndex(document)];
+    }
+
+    int getId(final int document) {
+        return document - offsets[getTypeIndex(document)];
+    }
+
+    private int getTypeIndex(final int document) {
+        int type = 0;
+        while (document >= offsets[type + 1]) ++type;
+
+        return type;
+    }
+
+    @NotNull
+    private static List<String> tokenize(@NotNull final String text) {
+        final List<String> terms = new ArrayList<>();
+        for (final String term : SEPARATOR.split(StringUtils.removeAccents(text).toLowerCase(Locale.ROOT)))
+            if (!term.isEmpty()) terms.add(term);
+
+        return terms;
+    }
+
+    // A term repeated in a field counts for more, but less for every repetition.
+    private static void addTerms(@NotNull final Map<String, Float> weights, @NotNull final List<String> terms, final float fieldWeight) {
+        final Map<String, Integer> frequencies = new HashMap<>();
+        for (final String term : terms) frequencies.merge(term, 1, Integer::sum);
+
+        for (final Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            final int frequency = entry.getValue();
+            weights.merge(entry.getKey(), fieldWeight * 2 * frequency / (frequency + 1), Float::sum);
+        }
+    }
+
+    // Documents that have a term, in document order, and the weight of the term in each.
+    private static final class Postings {
+
+        @NotNull
+        private final int[] documents;
+
+        @NotNull
+        private final float[] weights;
+
+        Postings(@NotNull final int[] documents, @NotNull final float[] weights) {
+            this.documents = documents;
+            this.weights = weights;
+        }
+    }
+
+    private static final class PostingsBuilder {
+
+        @NotNull
+        private final List<Integer> documents = new ArrayList<>();
+
+        @NotNull
+        private final List<Float> weights = new ArrayList<>();
+
+        void add(final int document, final float weight) {
+            documents.add(document);
+            weights.add(weight);
+        }
+
+        @NotNull
+        Postings build() {
+            final float[] weightArray = new float[weights.size()];
+            for (int index = 0; index < weightArray.length; ++index) weightArray[index] = weights.get(index);
+
+            return new Postings(documents.stream().mapToInt(Integer::intValue).toArray(), weightArray);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+// A snapshot saved to disk together with the hash of the ontology file it was computed from. The header is a magic
+// number, the format version and the hash; a file whose header does not match is ignored and rebuilt. The rest of
+// the file is mapped into memory and read in place.
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x4f4e5453;
+
+    private static final int VERSION = 2;
+
+    private SnapshotFile() {
+    }
+
+    @NotNull
+    static String hash(@NotNull final File file, @NotNull final String reasoner) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (final InputStream inputStream = new FileInputStream(file)) {
+            final byte[] buffer = new byte[8192];
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) digest.update(buffer, 0, length);
+        }
+        digest.update(reasoner.getBytes(StandardCharsets.UTF_8));
+
+        final StringBuilder builder = new StringBuilder();
+        for (final byte b : digest.digest()) builder.append(String.format("%02x", b));
+
+        return builder.toString();
+    }
+
+    @Nullable
+    static OntologySnapshot read(@NotNull final File file, @NotNull final String hash) throws IOException {
+        if (!file.isFile()) return null;
+
+        // The mapping stays valid after the channel is closed.
+        final MappedByteBuffer buffer;
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        final byte[] hashBytes = hash.getBytes(StandardCharsets.US_ASCII);
+        final int headerLength = 3 * Integer.BYTES + hashBytes.length;
+        if (buffer.limit() < headerLength || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+        if (buffer.getInt() != hashBytes.length) return null;
+
+        final byte[] savedHash = new byte[hashBytes.length];
+        buffer.get(savedHash);
+        if (!Arrays.equals(savedHash, hashBytes)) return null;
+
+        return new MappedSnapshot(buffer.slice());
+    }
+
+    // The snapshot is written next to the target and moved over it, so readers never see half a file.
+    static void write(@NotNull final File file, @NotNull final String hash, @NotNull final OntologySnapshot snapshot) throws IOException {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        final File temporaryFile = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                final byte[] hashBytes = hash.getBytes(StandardCharsets.US_ASCII);
+                output.writeInt(hashBytes.length);
+                output.write(hashBytes);
+                MappedSnapshot.write(snapshot, output);
+            }
+
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+}
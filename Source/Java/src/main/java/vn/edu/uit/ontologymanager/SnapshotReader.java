@@ -0,0 +1,1296 @@
+package vn.edu.uit.ontologymanager;
+
+import com.google.gson.Gson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.semanticweb.owlapi.io.OWLParserException;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import vn.edu.uit.ontologymanager.OntologySnapshot.EntityTable;
+import vn.edu.uit.ontologymanager.model.*;
+import vn.edu.uit.ontologymanager.model.Class;
+import vn.edu.uit.server.ChunkWriter;
+import vn.edu.uit.server.GetType;
+import vn.edu.uit.server.Request;
+import vn.edu.uit.server.RequestType;
+import vn.edu.uit.server.Response;
+import vn.edu.uit.shared.Pair;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static vn.edu.uit.ontologymanager.OntologySnapshot.NOT_FOUND;
+import static vn.edu.uit.ontologymanager.model.DataType.ENUMERATED;
+import static vn.edu.uit.server.GetType.GET_DIRECT;
+import static vn.edu.uit.server.ResponseType.*;
+
+// Answers requests from one snapshot. A snapshot never changes, so a reader is shared by any number of threads
+// without locking, and every part of a request, batches included, sees the same snapshot.
+final class SnapshotReader {
+
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+
+    @NotNull
+    private static final Logger LOGGER = Logger.getLogger(SnapshotReader.class.getName());
+
+    @NotNull
+    private final Gson gson;
+
+    @NotNull
+    private final OntologySnapshot snapshot;
+
+    @NotNull
+    private final Individual[] individuals;
+
+    @NotNull
+    private final Attribute[] attributes;
+
+    // Built on the first search, since most snapshots are replaced or the server stops before anyone searches.
+    @Nullable
+    private volatile SearchIndex searchIndex;
+
+    @NotNull
+    private final ReasonerPool reasonerPool;
+
+    @NotNull
+    private final ExecutorService batchExecutor;
+
+    // Individuals and attributes appear in many responses, so they are built once per snapshot and shared.
+    SnapshotReader(@NotNull final Gson gson, @NotNull final OntologySnapshot snapshot, @NotNull final ReasonerPool reasonerPool,
+                   @NotNull final ExecutorService batchExecutor) {
+        this.gson = gson;
+        this.reasonerPool = reasonerPool;
+        this.batchExecutor = batchExecutor;
+
+        final EntityTable individualTable = snapshot.getIndividuals();
+        final Individual[] individuals = new Individual[individualTable.size()];
+        for (int individualId = 0; individualId < individuals.length; ++individualId)
+            individuals[individualId] = new Individual.Builder(individualTable.getName(individualId), individualTable.getLabel(individualId)).build();
+
+        final EntityTable attributeTable = snapshot.getAttributes();
+        final Attribute[] attributes = new Attribute[attributeTable.size()];
+        for (int attributeId = 0; attributeId < attributes.length; ++attributeId) {
+            final Attribute.Builder builder = new Attribute.Builder(attributeTable.getName(attributeId), attributeTable.getLabel(attributeId));
+
+            final DataType range = snapshot.getAttributeRange(attributeId);
+            if (range != null) {
+                builder.range(range);
+                if (range == ENUMERATED) builder.enumeratedValues(Arrays.asList(snapshot.getAttributeEnumeratedValues(attributeId)));
+            }
+
+            attributes[attributeId] = builder.build();
+        }
+
+        this.snapshot = snapshot;
+        this.individuals = individuals;
+        this.attributes = attributes;
+    }
+
+    @NotNull
+    OntologySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @NotNull
+    Response process(@NotNull final Request request) {
+        return withId(processRequest(request), request.getId());
+    }
+
+    @NotNull
+    Response stream(@NotNull final Request request, final int chunkSize, @NotNull final ChunkWriter writer) throws IOException {
+        final ChunkWriter chunkWriter = chunk -> writer.write(withId(chunk, request.getId()));
+
+        Response response;
+        try {
+            switch (request.getType()) {
+                case GET_INDIVIDUALS:
+                    response = streamIndividuals(chunkSize, chunkWriter);
+                    break;
+                case GET_ATTRIBUTE_VALUES:
+                    response = streamAttributeValues(request.getData(), chunkSize, chunkWriter);
+                    break;
+                default:
+                    response = processRequest(request);
+            }
+        } catch (final IOException e) {
+            throw e;
+        } catch (final Exception e) {
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+
+            response = new Response.Builder(ERROR).message(e.toString()).build();
+        }
+
+        return withId(response, request.getId());
+    }
+
+    @NotNull
+    static Response withId(@NotNull final Response response, @Nullable final String id) {
+        if (id == null) return response;
+
+        return new Response.Builder(response).id(id).build();
+    }
+
+    @NotNull
+    private Response processRequest(@NotNull final Request request) {
+        final Map<String, Object> data = request.getData();
+
+        Response response;
+        try {
+            final RequestType type = request.getType();
+            switch (type) {
+                case GET_COMMENT:
+                    response = parseComment(data);
+                    break;
+                case GET_CLASS:
+                    response = parseClass(data);
+                    break;
+                case GET_SUPERCLASSES:
+                    response = parseSuperClasses(data);
+                    break;
+                case GET_SUBCLASSES:
+                    response = parseSubClasses(data);
+                    break;
+                case IS_SUBCLASS:
+                    response = parseIsSubClass(data);
+                    break;
+                case GET_EXPRESSION_SUBCLASSES:
+                    response = parseExpressionSubClasses(data);
+                    break;
+                case GET_DOMAIN_RELATIONS:
+                    response = parseDomainRelations(data);
+                    break;
+                case GET_RANGE_RELATIONS:
+                    response = parseRangeRelations(data);
+                    break;
+                case GET_CLASS_ATTRIBUTES:
+                    response = parseClassAttributes(data);
+                    break;
+                case GET_CLASS_INDIVIDUALS:
+                    response = parseClassIndividuals(data);
+                    break;
+                case GET_EXPRESSION_INDIVIDUALS:
+                    response = parseExpressionIndividuals(data);
+                    break;
+                case GET_RELATION:
+                    response = parseRelation(data);
+                    break;
+                case GET_RELATIONS:
+                    response = parseRelations(data);
+                    break;
+                case GET_INVERSE_RELATION:
+                    response = parseInverseRelation(data);
+                    break;
+                case GET_RELATION_DOMAINS:
+                    response = parseRelationDomains(data);
+                    break;
+                case GET_RELATION_RANGES:
+                    response = parseRelationRanges(data);
+                    break;
+                case GET_ATTRIBUTE:
+                    response = parseAttribute(data);
+                    break;
+                case GET_ATTRIBUTES:
+                    response = parseAttributes(data);
+                    break;
+                case GET_ATTRIBUTE_DOMAINS:
+                    response = parseAttributeDomains(data);
+                    break;
+                case GET_INDIVIDUAL:
+                    response = parseIndividual(data);
+                    break;
+                case GET_INDIVIDUALS:
+                    response = parseIndividuals(data);
+                    break;
+                case GET_INDIVIDUAL_CLASSES:
+                    response = parseIndividualClasses(data);
+                    break;
+                case GET_RELATION_VALUE:
+                    response = parseRelationValue(data);
+                    break;
+                case GET_RELATION_VALUES:
+                    response = parseRelationValues(data);
+                    break;
+                case GET_ATTRIBUTE_VALUES:
+                    response = parseAttributeValues(data);
+                    break;
+                case GET_ATTRIBUTE_VALUES_BY_ATTRIBUTE_NAME:
+                    response = parseAttributeValuesByAttributeName(data);
+                    break;
+                case GET_INDIVIDUALS_BY_ATTRIBUTE_VALUE:
+                    response = parseIndividualsByAttributeValue(data);
+                    break;
+                case SEARCH_ENTITIES:
+                    response = parseSearchEntities(data);
+                    break;
+                case GET_REASONER_POOL_STATS:
+                    response = parseReasonerPoolStats();
+                    break;
+                case BATCH:
+                    response = parseBatch(data);
+                    break;
+                default:
+                    response = new Response.Builder(FAIL).message("Unknown request query type \"" + gson.toJson(type, RequestType.class) + "\".").build();
+            }
+
+            return response;
+        } catch (final Exception e) {
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+
+            response = new Response.Builder(ERROR).message(e.toString()).build();
+
+            return response;
+        }
+    }
+
+    @NotNull
+    private Response parseComment(@NotNull final Map<String, Object> data) {
+        final String objectName = (String) data.get("Object");
+
+        EntityTable table = snapshot.getRelations();
+        int objectId = table.find(objectName);
+        if (objectId == NOT_FOUND) {
+            table = snapshot.getAttributes();
+            objectId = table.find(objectName);
+        }
+
+        final Response.Builder builder;
+        if (objectId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Object \"" + objectName + "\" not found.");
+        } else {
+            final String comment = table.getComment(objectId);
+
+            if (comment == null) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Comment of \"" + objectName + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("Comment", comment);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseClass(@NotNull final Map<String, Object> data) {
+        final String className = (String) data.get("Class");
+
+        final int classId = snapshot.getClasses().find(className);
+
+        final Response.Builder builder;
+        if (classId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class \"" + className + "\" not found.");
+        } else {
+            final Class cls = getClass(classId);
+
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Class", cls);
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseSuperClasses(@NotNull final Map<String, Object> data) {
+        final String className = (String) data.get("Class");
+        final GetType getSuperClassType = gson.fromJson((String) data.get("GetSuperClassType"), GetType.class);
+
+        final int classId = snapshot.getClasses().find(className);
+
+        final Response.Builder builder;
+        if (classId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class \"" + className + "\" not found.");
+        } else {
+            final Set<Class> superClasses = getClasses(snapshot.getSuperClasses(classId, getSuperClassType == GET_DIRECT));
+
+            if (superClasses.isEmpty()) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Super classes of \"" + className + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("SuperClasses", superClasses);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseSubClasses(@NotNull final Map<String, Object> data) {
+        final String className = (String) data.get("Class");
+        final GetType getSubClassType = gson.fromJson((String) data.get("GetSubClassType"), GetType.class);
+
+        final int classId = snapshot.getClasses().find(className);
+
+        final Response.Builder builder;
+        if (classId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class \"" + className + "\" not found.");
+        } else {
+            final Set<Class> subClasses = getClasses(snapshot.getSubClasses(classId, getSubClassType == GET_DIRECT));
+
+            if (subClasses.isEmpty()) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Sub classes of \"" + className + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("SubClasses", subClasses);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseIsSubClass(@NotNull final Map<String, Object> data) {
+        final String className = (String) data.get("Class");
+        final String superClassName = (String) data.get("SuperClass");
+
+        final int classId = snapshot.getClasses().find(className);
+        final int superClassId = snapshot.getClasses().find(superClassName);
+
+        final Response.Builder builder;
+        if (classId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class \"" + className + "\" not found.");
+        } else if (superClassId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class \"" + superClassName + "\" not found.");
+        } else {
+            builder = new Response.Builder(SUCCESS);
+            builder.data("IsSubClass", snapshot.isSubClass(classId, superClassId));
+        }
+
+        return builder.build();
+    }
+
+    // Arbitrary class expressions are not in the snapshot, so they are answered by a pooled reasoner.
+    @NotNull
+    private Response parseExpressionSubClasses(@NotNull final Map<String, Object> data) throws InterruptedException {
+        final String expression = (String) data.get("Expression");
+        final GetType getSubClassType = gson.fromJson((String) data.get("GetSubClassType"), GetType.class);
+
+        final OWLClassExpression owlExpression = parseExpression(expression);
+
+        final Response.Builder builder;
+        if (owlExpression == null) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class expression \"" + expression + "\" is invalid.");
+        } else {
+            final int[] classIds = toIds(reason(reasoner -> reasoner.getSubClasses(owlExpression, getSubClassType == GET_DIRECT).getFlattened()),
+                    snapshot.getClasses());
+
+            if (classIds.length == 0) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Sub classes of \"" + expression + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("SubClasses", getClasses(classIds));
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseDomainRelations(@NotNull final Map<String, Object> data) {
+        final String className = (String) data.get("Class");
+
+        final int classId = snapshot.getClasses().find(className);
+
+        final Response.Builder builder;
+        if (classId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class \"" + className + "\" not found.");
+        } else {
+            final Set<Relation> relations = new HashSet<>();
+            for (final int relationId : snapshot.getDomainRelations(classId))
+                relations.add(getRelation(relationId));
+
+            if (relations.isEmpty()) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Relations of domain \"" + className + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("DomainRelations", relations);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseRangeRelations(@NotNull final Map<String, Object> data) {
+        final String className = (String) data.get("Class");
+
+        final int classId = snapshot.getClasses().find(className);
+
+        final Response.Builder builder;
+        if (classId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class \"" + className + "\" not found.");
+        } else {
+            final Set<Relation> relations = new HashSet<>();
+            for (final int relationId : snapshot.getRangeRelations(classId))
+                relations.add(getRelation(relationId));
+
+            if (relations.isEmpty()) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Relations of range \"" + className + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("RangeRelations", relations);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseClassAttributes(@NotNull final Map<String, Object> data) {
+        final String className = (String) data.get("Class");
+
+        final int classId = snapshot.getClasses().find(className);
+
+        final Response.Builder builder;
+        if (classId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class \"" + className + "\" not found.");
+        } else {
+            final Set<Attribute> attributes = new HashSet<>();
+            for (final int attributeId : snapshot.getClassAttributes(classId))
+                attributes.add(getAttribute(attributeId));
+
+            if (attributes.isEmpty()) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Attributes of \"" + className + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("ClassAttributes", attributes);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseClassIndividuals(@NotNull final Map<String, Object> data) {
+        final String className = (String) data.get("Class");
+        final GetType getIndividualType = gson.fromJson((String) data.get("GetIndividualType"), GetType.class);
+
+        final int classId = snapshot.getClasses().find(className);
+
+        final Response.Builder builder;
+        if (classId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class \"" + className + "\" not found.");
+        } else {
+            final int[] individualIds = snapshot.getClassIndividuals(classId, getIndividualType == GET_DIRECT);
+
+            if (individualIds.length == 0) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Individuals of \"" + className + "\" not found.");
+            } else if (isPaged(data)) {
+                final Pair<int[], String> page = getPage(individualIds, snapshot.getIndividuals(), data);
+
+                builder = new Response.Builder(SUCCESS);
+                builder.data("ClassIndividuals", getIndividualList(page.getLeft()));
+                addPageData(builder, individualIds.length, page.getRight());
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("ClassIndividuals", new HashSet<>(getIndividualList(individualIds)));
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseExpressionIndividuals(@NotNull final Map<String, Object> data) throws InterruptedException {
+        final String expression = (String) data.get("Expression");
+        final GetType getIndividualType = gson.fromJson((String) data.get("GetIndividualType"), GetType.class);
+
+        final OWLClassExpression owlExpression = parseExpression(expression);
+
+        final Response.Builder builder;
+        if (owlExpression == null) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Class expression \"" + expression + "\" is invalid.");
+        } else {
+            final int[] individualIds = toIds(reason(reasoner -> reasoner.getInstances(owlExpression, getIndividualType == GET_DIRECT).getFlattened()),
+                    snapshot.getIndividuals());
+
+            if (individualIds.length == 0) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Individuals of \"" + expression + "\" not found.");
+            } else if (isPaged(data)) {
+                final Pair<int[], String> page = getPage(individualIds, snapshot.getIndividuals(), data);
+
+                builder = new Response.Builder(SUCCESS);
+                builder.data("Individuals", getIndividualList(page.getLeft()));
+                addPageData(builder, individualIds.length, page.getRight());
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("Individuals", new HashSet<>(getIndividualList(individualIds)));
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseRelation(@NotNull final Map<String, Object> data) {
+        final String relationName = (String) data.get("Relation");
+
+        final int relationId = snapshot.getRelations().find(relationName);
+
+        final Response.Builder builder;
+        if (relationId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Relation \"" + relationName + "\" not found.");
+        } else {
+            final Relation relation = getRelation(relationId);
+
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Relation", relation);
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseRelations(@Nullable final Map<String, Object> data) {
+        final int[] relationIds = getAllIds(snapshot.getRelations());
+
+        final Response.Builder builder;
+        if (relationIds.length == 0) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Relations not found.");
+        } else if (isPaged(data)) {
+            final Pair<int[], String> page = getPage(relationIds, snapshot.getRelations(), data);
+
+            final List<Relation> relations = new ArrayList<>();
+            for (final int relationId : page.getLeft())
+                relations.add(getRelation(relationId));
+
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Relations", relations);
+            addPageData(builder, relationIds.length, page.getRight());
+        } else {
+            final Set<Relation> relations = new HashSet<>();
+            for (final int relationId : relationIds)
+                relations.add(getRelation(relationId));
+
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Relations", relations);
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseInverseRelation(@NotNull final Map<String, Object> data) {
+        final String relationName = (String) data.get("Relation");
+
+        final int relationId = snapshot.getRelations().find(relationName);
+
+        final Response.Builder builder;
+        if (relationId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Relation \"" + relationName + "\" not found.");
+        } else {
+            final int inverseRelationId = snapshot.getInverseRelation(relationId);
+
+            if (inverseRelationId == NOT_FOUND) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Inverse relation of \"" + relationName + "\" not found.");
+            } else {
+                final Relation relation = getRelation(inverseRelationId);
+
+                builder = new Response.Builder(SUCCESS);
+                builder.data("InverseRelation", relation);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseRelationDomains(@NotNull final Map<String, Object> data) {
+        final String relationName = (String) data.get("Relation");
+        final GetType getDomainType = gson.fromJson((String) data.get("GetDomainType"), GetType.class);
+
+        final int relationId = snapshot.getRelations().find(relationName);
+
+        final Response.Builder builder;
+        if (relationId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Relation \"" + relationName + "\" not found.");
+        } else {
+            final int[] domainIds = snapshot.getRelationDomains(relationId, getDomainType == GET_DIRECT);
+
+            if (domainIds == null) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Domains of \"" + relationName + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("RelationDomains", getClasses(domainIds));
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseRelationRanges(@NotNull final Map<String, Object> data) {
+        final String relationName = (String) data.get("Relation");
+        final GetType getRangeType = gson.fromJson((String) data.get("GetRangeType"), GetType.class);
+
+        final int relationId = snapshot.getRelations().find(relationName);
+
+        final Response.Builder builder;
+        if (relationId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Relation \"" + relationName + "\" not found.");
+        } else {
+            final int[] rangeIds = snapshot.getRelationRanges(relationId, getRangeType == GET_DIRECT);
+
+            if (rangeIds == null) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Ranges of \"" + relationName + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("RelationRanges", getClasses(rangeIds));
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseAttribute(@NotNull final Map<String, Object> data) {
+        final String attributeName = (String) data.get("Attribute");
+
+        final int attributeId = snapshot.getAttributes().find(attributeName);
+
+        final Response.Builder builder;
+        if (attributeId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Attribute \"" + attributeName + "\" not found.");
+        } else {
+            final Attribute attribute = getAttribute(attributeId);
+
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Attribute", attribute);
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseAttributes(@Nullable final Map<String, Object> data) {
+        final int[] attributeIds = getAllIds(snapshot.getAttributes());
+
+        final Response.Builder builder;
+        if (attributeIds.length == 0) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Attributes not found.");
+        } else if (isPaged(data)) {
+            final Pair<int[], String> page = getPage(attributeIds, snapshot.getAttributes(), data);
+
+            final List<Attribute> attributes = new ArrayList<>();
+            for (final int attributeId : page.getLeft())
+                attributes.add(getAttribute(attributeId));
+
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Attributes", attributes);
+            addPageData(builder, attributeIds.length, page.getRight());
+        } else {
+            final Set<Attribute> attributes = new HashSet<>();
+            for (final int attributeId : attributeIds)
+                attributes.add(getAttribute(attributeId));
+
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Attributes", attributes);
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseAttributeDomains(@NotNull final Map<String, Object> data) {
+        final String attributeName = (String) data.get("Attribute");
+        final GetType getDomainType = gson.fromJson((String) data.get("GetDomainType"), GetType.class);
+
+        final int attributeId = snapshot.getAttributes().find(attributeName);
+
+        final Response.Builder builder;
+        if (attributeId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Attribute \"" + attributeName + "\" not found.");
+        } else {
+            final int[] domainIds = snapshot.getAttributeDomains(attributeId, getDomainType == GET_DIRECT);
+
+            if (domainIds == null) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Domains of \"" + attributeName + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("AttributeDomains", getClasses(domainIds));
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseIndividual(@NotNull final Map<String, Object> data) {
+        final String individualName = (String) data.get("Individual");
+
+        final int individualId = snapshot.getIndividuals().find(individualName);
+
+        final Response.Builder builder;
+        if (individualId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Individual \"" + individualName + "\" not found.");
+        } else {
+            final Individual individual = getIndividual(individualId);
+
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Individual", individual);
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseIndividuals(@Nullable final Map<String, Object> data) {
+        final int[] individualIds = getAllIds(snapshot.getIndividuals());
+
+        final Response.Builder builder;
+        if (individualIds.length == 0) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Individuals not found.");
+        } else if (isPaged(data)) {
+            final Pair<int[], String> page = getPage(individualIds, snapshot.getIndividuals(), data);
+
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Individuals", getIndividualList(page.getLeft()));
+            addPageData(builder, individualIds.length, page.getRight());
+        } else {
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Individuals", new HashSet<>(getIndividualList(individualIds)));
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseIndividualClasses(@NotNull final Map<String, Object> data) {
+        final String individualName = (String) data.get("Individual");
+        final GetType getClassType = gson.fromJson((String) data.get("GetClassType"), GetType.class);
+
+        final int individualId = snapshot.getIndividuals().find(individualName);
+
+        final Response.Builder builder;
+        if (individualId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Individual \"" + individualName + "\" not found.");
+        } else {
+            final int[] classIds = snapshot.getIndividualClasses(individualId, getClassType == GET_DIRECT);
+
+            if (classIds == null) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Classes of \"" + individualName + "\" not found.");
+            } else {
+                final Set<Class> classes = getClasses(classIds);
+
+                builder = new Response.Builder(SUCCESS);
+                if (getClassType == GET_DIRECT)
+                    builder.data("IndividualClass", classes.iterator().next());
+                else builder.data("IndividualClasses", classes);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseRelationValue(@NotNull final Map<String, Object> data) {
+        final String individualName = (String) data.get("Individual");
+        final String relationName = (String) data.get("Relation");
+        final boolean inverse = Boolean.TRUE.equals(data.get("Inverse"));
+
+        final int individualId = snapshot.getIndividuals().find(individualName);
+        final int relationId = snapshot.getRelations().find(relationName);
+
+        final Response.Builder builder;
+        if (individualId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Individual \"" + individualName + "\" not found.");
+        } else if (relationId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Relation \"" + relationName + "\" not found.");
+        } else {
+            final int[] valueIds = inverse
+                    ? snapshot.getInverseRelationValues(individualId, relationId)
+                    : snapshot.getRelationValues(individualId, relationId);
+
+            if (valueIds.length == 0) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Relation value \"" + relationName + "\" of \"" + individualName + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("RelationValue", getIndividualList(valueIds));
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseRelationValues(@NotNull final Map<String, Object> data) {
+        final String individualName = (String) data.get("Individual");
+
+        final int individualId = snapshot.getIndividuals().find(individualName);
+
+        final Response.Builder builder;
+        if (individualId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Individual \"" + individualName + "\" not found.");
+        } else {
+            final Set<Pair<Relation, List<Individual>>> relationValues = new HashSet<>();
+            for (final int relationId : snapshot.getIndividualRelations(individualId)) {
+                final List<Individual> values = getIndividualList(snapshot.getRelationValues(individualId, relationId));
+                relationValues.add(new Pair<>(getRelation(relationId), values));
+            }
+
+            if (relationValues.isEmpty()) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Relation values of \"" + individualName + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("RelationValues", relationValues);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseAttributeValues(@NotNull final Map<String, Object> data) {
+        final String individualName = (String) data.get("Individual");
+
+        final int individualId = snapshot.getIndividuals().find(individualName);
+
+        final Response.Builder builder;
+        if (individualId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Individual \"" + individualName + "\" not found.");
+        } else {
+            final Set<Pair<Attribute, List<String>>> attributeValues = new HashSet<>();
+            for (final int attributeId : snapshot.getIndividualAttributes(individualId)) {
+                final List<String> values = Arrays.asList(snapshot.getAttributeValues(individualId, attributeId));
+                attributeValues.add(new Pair<>(getAttribute(attributeId), values));
+            }
+
+            if (attributeValues.isEmpty()) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Attributes values of \"" + individualName + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("AttributeValues", attributeValues);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response streamAttributeValues(@NotNull final Map<String, Object> data, final int chunkSize,
+                                           @NotNull final ChunkWriter writer) throws IOException {
+        final String individualName = (String) data.get("Individual");
+
+        final int individualId = snapshot.getIndividuals().find(individualName);
+        if (individualId == NOT_FOUND)
+            return new Response.Builder(FAIL).message("Individual \"" + individualName + "\" not found.").build();
+
+        final Chunker<Pair<Attribute, List<String>>> chunker = new Chunker<>("AttributeValues", chunkSize, writer);
+        for (final int attributeId : snapshot.getIndividualAttributes(individualId)) {
+            final List<String> values = Arrays.asList(snapshot.getAttributeValues(individualId, attributeId));
+            chunker.add(new Pair<>(getAttribute(attributeId), values));
+        }
+        chunker.flush();
+
+        if (chunker.total == 0)
+            return new Response.Builder(FAIL).message("Attributes values of \"" + individualName + "\" not found.").build();
+
+        return new Response.Builder(SUCCESS).data("Total", chunker.total).build();
+    }
+
+    @NotNull
+    private Response parseAttributeValuesByAttributeName(@NotNull final Map<String, Object> data) {
+        final String individualName = (String) data.get("Individual");
+        final String attributeName = (String) data.get("Attribute");
+
+        final int individualId = snapshot.getIndividuals().find(individualName);
+
+        final Response.Builder builder;
+        if (individualId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Individual \"" + individualName + "\" not found.");
+        } else {
+            final int attributeId = snapshot.getAttributes().find(attributeName);
+            final String[] values = attributeId == NOT_FOUND ? new String[0] : snapshot.getAttributeValues(individualId, attributeId);
+
+            if (values.length == 0) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Attribute \"" + attributeName + "\" values of \"" + individualName + "\" not found.");
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("AttributeValues", Arrays.asList(values));
+            }
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseIndividualsByAttributeValue(@NotNull final Map<String, Object> data) {
+        final String attributeName = (String) data.get("Attribute");
+        final String value = (String) data.get("Value");
+
+        final int attributeId = snapshot.getAttributes().find(attributeName);
+
+        final Response.Builder builder;
+        if (attributeId == NOT_FOUND) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Attribute \"" + attributeName + "\" not found.");
+        } else {
+            final int[] individualIds = value == null ? new int[0] : snapshot.getAttributeIndividuals(attributeId, value);
+
+            if (individualIds.length == 0) {
+                builder = new Response.Builder(FAIL);
+                builder.message("Individuals with \"" + attributeName + "\" value \"" + value + "\" not found.");
+            } else if (isPaged(data)) {
+                final Pair<int[], String> page = getPage(individualIds, snapshot.getIndividuals(), data);
+
+                builder = new Response.Builder(SUCCESS);
+                builder.data("Individuals", getIndividualList(page.getLeft()));
+                addPageData(builder, individualIds.length, page.getRight());
+            } else {
+                builder = new Response.Builder(SUCCESS);
+                builder.data("Individuals", new HashSet<>(getIndividualList(individualIds)));
+            }
+        }
+
+        return builder.build();
+    }
+
+    // Results are ranked, so they are paged by position rather than by cursor.
+    @NotNull
+    private Response parseSearchEntities(@NotNull final Map<String, Object> data) {
+        final String query = (String) data.get("Query");
+        final EntityType entityType = gson.fromJson((String) data.get("EntityType"), EntityType.class);
+        final Number limitNumber = (Number) data.get("Limit");
+        final Number offsetNumber = (Number) data.get("Offset");
+
+        final int limit = limitNumber == null ? DEFAULT_SEARCH_LIMIT : limitNumber.intValue();
+        final int offset = offsetNumber == null ? 0 : offsetNumber.intValue();
+        if (limit < 1) throw new IllegalArgumentException("Limit must be positive.");
+        if (offset < 0) throw new IllegalArgumentException("Offset must not be negative.");
+
+        final SearchIndex searchIndex = getSearchIndex();
+        final int[] documents = query == null ? new int[0] : searchIndex.search(query, entityType);
+
+        final Response.Builder builder;
+        if (documents.length == 0) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Entities matching \"" + query + "\" not found.");
+        } else {
+            final int from = Math.min(offset, documents.length);
+            final int to = (int) Math.min((long) from + limit, documents.length);
+
+            final List<Entity> entities = new ArrayList<>(to - from);
+            for (int index = from; index < to; ++index) entities.add(getEntity(searchIndex, documents[index]));
+
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Entities", entities);
+            builder.data("Total", documents.length);
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseReasonerPoolStats() {
+        final Response.Builder builder = new Response.Builder(SUCCESS);
+        builder.data("Size", reasonerPool.getSize());
+        builder.data("CreatedReasoners", reasonerPool.getCreatedReasoners());
+        builder.data("IdleReasoners", reasonerPool.getIdleReasoners());
+        builder.data("Checkouts", reasonerPool.getCheckouts());
+        builder.data("Waits", reasonerPool.getWaits());
+        builder.data("AverageWaitMillis", reasonerPool.getAverageWaitMillis());
+        builder.data("MaxWaitMillis", reasonerPool.getMaxWaitMillis());
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response parseBatch(@NotNull final Map<String, Object> data) throws InterruptedException, ExecutionException {
+        final List<?> requestObjects = (List<?>) data.get("Requests");
+
+        final Response.Builder builder;
+        if (requestObjects == null) {
+            builder = new Response.Builder(FAIL);
+            builder.message("Requests not found.");
+        } else {
+            // Sub-requests share nothing but the snapshot, so they run in parallel and keep their order.
+            final List<Future<Response>> futures = new ArrayList<>(requestObjects.size());
+            final List<Response> responses = new ArrayList<>(requestObjects.size());
+            try {
+                for (final Object requestObject : requestObjects)
+                    futures.add(batchExecutor.submit(() -> processBatchRequest(requestObject)));
+                for (final Future<Response> future : futures) responses.add(future.get());
+            } finally {
+                // A batch that fails or is interrupted leaves none of its sub-requests running.
+                for (final Future<Response> future : futures) future.cancel(true);
+            }
+
+            builder = new Response.Builder(SUCCESS);
+            builder.data("Responses", responses);
+        }
+
+        return builder.build();
+    }
+
+    @NotNull
+    private Response processBatchRequest(@NotNull final Object requestObject) {
+        final Request request = gson.fromJson(gson.toJsonTree(requestObject), Request.class);
+
+        final Response response;
+        if (request.getType() == RequestType.BATCH)
+            response = new Response.Builder(FAIL).message("Nested batch requests are not supported.").build();
+        else if (request.getType() != null && request.getType().isWrite())
+            response = new Response.Builder(FAIL).message("Write requests are not supported in batches.").build();
+        else response = processRequest(request);
+
+        return withId(response, request.getId());
+    }
+
+    @NotNull
+    private Response streamIndividuals(final int chunkSize, @NotNull final ChunkWriter writer) throws IOException {
+        final Chunker<Individual> chunker = new Chunker<>("Individuals", chunkSize, writer);
+        for (int individualId = 0; individualId < snapshot.getIndividuals().size(); ++individualId)
+            chunker.add(getIndividual(individualId));
+        chunker.flush();
+
+        if (chunker.total == 0) return new Response.Builder(FAIL).message("Individuals not found.").build();
+
+        return new Response.Builder(SUCCESS).data("Total", chunker.total).build();
+    }
+
+    @Nullable
+    private OWLClassExpression parseExpression(@Nullable final String expression) {
+        if (expression == null) return null;
+
+        try {
+            return reasonerPool.parse(expression);
+        } catch (final OWLParserException e) {
+            return null;
+        }
+    }
+
+    @NotNull
+    private <T> T reason(@NotNull final Function<OWLReasoner, T> query) throws InterruptedException {
+        final OWLReasoner reasoner = reasonerPool.checkout();
+        try {
+            return query.apply(reasoner);
+        } finally {
+            reasonerPool.release(reasoner);
+        }
+    }
+
+    // Entities the reasoner knows but the snapshot leaves out, such as Nothing, are skipped.
+    @NotNull
+    private static int[] toIds(@NotNull final Set<? extends OWLEntity> owlEntities, @NotNull final EntityTable table) {
+        return owlEntities.stream()
+                .mapToInt(owlEntity -> table.find(owlEntity.getIRI().getShortForm()))
+                .filter(id -> id != NOT_FOUND)
+                .sorted()
+                .toArray();
+    }
+
+    private boolean isPaged(@Nullable final Map<String, Object> data) {
+        return data != null && (data.containsKey("Limit") || data.containsKey("Offset") || data.containsKey("Cursor"));
+    }
+
+    // Pages are ordered by entity id. The cursor holds the last id of the previous page, so a page stays correct
+    // even if entities before it are added or removed between calls.
+    @NotNull
+    private Pair<int[], String> getPage(@NotNull final int[] ids, @NotNull final EntityTable table,
+                                        @NotNull final Map<String, Object> data) {
+        final Number limitNumber = (Number) data.get("Limit");
+        final Number offsetNumber = (Number) data.get("Offset");
+        final String cursor = (String) data.get("Cursor");
+
+        final int limit = limitNumber == null ? Integer.MAX_VALUE : limitNumber.intValue();
+        final int offset = offsetNumber == null ? 0 : offsetNumber.intValue();
+        if (limit < 1) throw new IllegalArgumentException("Limit must be positive.");
+        if (offset < 0) throw new IllegalArgumentException("Offset must not be negative.");
+
+        // Snapshot ids follow name order, so the sorted ids are already in paging order.
+        int from = 0;
+        if (cursor != null) {
+            final String lastId = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int high = ids.length;
+            while (from < high) {
+                final int middle = (from + high) >>> 1;
+                if (table.getName(ids[middle]).compareTo(lastId) <= 0) from = middle + 1;
+                else high = middle;
+            }
+        }
+        from = (int) Math.min((long) from + offset, ids.length);
+        final int to = (int) Math.min((long) from + limit, ids.length);
+
+        String nextCursor = null;
+        if (to > from && to < ids.length) {
+            final String lastId = table.getName(ids[to - 1]);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new Pair<>(Arrays.copyOfRange(ids, from, to), nextCursor);
+    }
+
+    private void addPageData(@NotNull final Response.Builder builder, final int total, @Nullable final String nextCursor) {
+        builder.data("Total", total);
+        if (nextCursor != null) builder.data("NextCursor", nextCursor);
+    }
+
+    @NotNull
+    private static int[] getAllIds(@NotNull final EntityTable table) {
+        final int[] ids = new int[table.size()];
+        for (int id = 0; id < ids.length; ++id) ids[id] = id;
+
+        return ids;
+    }
+
+    @NotNull
+    private Class getClass(final int classId) {
+        final EntityTable classes = snapshot.getClasses();
+
+        return new Class.Builder(classes.getName(classId), classes.getLabel(classId)).build();
+    }
+
+    @NotNull
+    private Set<Class> getClasses(@NotNull final int[] classIds) {
+        final Set<Class> classes = new HashSet<>();
+        for (final int classId : classIds) classes.add(getClass(classId));
+
+        return classes;
+    }
+
+    @NotNull
+    private Relation getRelation(final int relationId) {
+        final EntityTable relations = snapshot.getRelations();
+
+        return new Relation.Builder(relations.getName(relationId), relations.getLabel(relationId)).build();
+    }
+
+    @NotNull
+    private Attribute getAttribute(final int attributeId) {
+        return attributes[attributeId];
+    }
+
+    @NotNull
+    private Individual getIndividual(final int individualId) {
+        return individuals[individualId];
+    }
+
+    @NotNull
+    private SearchIndex getSearchIndex() {
+        SearchIndex searchIndex = this.searchIndex;
+        if (searchIndex == null) {
+            synchronized (this) {
+                searchIndex = this.searchIndex;
+                if (searchIndex == null) {
+                    searchIndex = new SearchIndex(snapshot);
+                    this.searchIndex = searchIndex;
+                }
+            }
+        }
+
+        return searchIndex;
+    }
+
+    @NotNull
+    private Entity getEntity(@NotNull final SearchIndex searchIndex, final int document) {
+        final int id = searchIndex.getId(document);
+        switch (searchIndex.getType(document)) {
+            case CLASS:
+                return getClass(id);
+            case RELATION:
+                return getRelation(id);
+            case ATTRIBUTE:
+                return getAttribute(id);
+            default:
+                return getIndividual(id);
+        }
+    }
+
+    @NotNull
+    private List<Individual> getIndividualList(@NotNull final int[] individualIds) {
+        final List<Individual> individuals = new ArrayList<>(individualIds.length);
+        for (final int individualId : individualIds) individuals.add(getIndividual(individualId));
+
+        return individuals;
+    }
+
+    // The writer serializes each chunk before it returns, so the value list is reused for the next chunk.
+    private static final class Chunker<T> {
+
+        @NotNull
+        private final String key;
+
+        private final int chunkSize;
+
+        @NotNull
+        private final ChunkWriter writer;
+
+        @NotNull
+        private final List<T> values;
+
+        private int total;
+
+        Chunker(@NotNull final String key, final int chunkSize, @NotNull final ChunkWriter writer) {
+            this.key = key;
+            this.chunkSize = chunkSize;
+            this.writer = writer;
+            values = new ArrayList<>(chunkSize);
+        }
+
+        void add(@NotNull final T value) throws IOException {
+            values.add(value);
+            ++total;
+            if (values.size() == chunkSize) flush();
+        }
+
+        void flush() throws IOException {
+            if (values.isEmpty()) return;
+
+            writer.write(new Response.Builder(SUCCESS).data(key, values).build());
+            values.clear();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.Imports;
+import org.semanticweb.owlapi.reasoner.BufferingMode;
+import org.semanticweb.owlapi.reasoner.Node;
+import org.semanticweb.owlapi.reasoner.NodeSet;
+import org.semanticweb.owlapi.reasoner.OWLReasonerConfiguration;
+import org.semanticweb.owlapi.reasoner.impl.OWLClassNodeSet;
+import org.semanticweb.owlapi.reasoner.impl.OWLNamedIndividualNodeSet;
+import org.semanticweb.owlapi.reasoner.structural.StructuralReasoner;
+
+import java.util.*;
+
+// A reasoner for ontologies that are mostly a taxonomy with assertions, as rice.owl is. On top of the told class
+// hierarchy of the structural reasoner it infers property values through inverse properties, types from named
+// property domains and ranges, and the subclasses of unions of named classes used as domains and ranges.
+final class TaxonomyReasoner extends StructuralReasoner {
+
+    // Values of a property that only follow from assertions of its inverses.
+    @NotNull
+    private final Map<OWLObjectProperty, Map<OWLNamedIndividual, Set<OWLNamedIndividual>>> inverseValues = new HashMap<>();
+
+    @NotNull
+    private final Map<OWLNamedIndividual, Set<OWLClass>> allTypes = new HashMap<>();
+
+    @NotNull
+    private final Map<OWLNamedIndividual, Set<OWLClass>> directTypes = new HashMap<>();
+
+    TaxonomyReasoner(@NotNull final OWLOntology ontology, @NotNull final OWLReasonerConfiguration configuration,
+                     @NotNull final BufferingMode bufferingMode) {
+        super(ontology, configuration, bufferingMode);
+        infer();
+    }
+
+    @Override
+    @NotNull
+    public String getReasonerName() {
+        return TaxonomyReasonerFactory.NAME;
+    }
+
+    @Override
+    protected void handleChanges(@NotNull final Set<OWLAxiom> addAxioms, @NotNull final Set<OWLAxiom> removeAxioms) {
+        super.handleChanges(addAxioms, removeAxioms);
+        infer();
+    }
+
+    @Override
+    @NotNull
+    public NodeSet<OWLClass> getSubClasses(@NotNull final OWLClassExpression ce, final boolean direct) {
+        if (!(ce instanceof OWLObjectUnionOf)) return super.getSubClasses(ce, direct);
+
+        final Set<OWLClassExpression> operands = ce.asDisjunctSet();
+        for (final OWLClassExpression operand : operands) if (operand.isAnonymous()) return super.getSubClasses(ce, direct);
+
+        final OWLClassNodeSet subClasses = new OWLClassNodeSet();
+        for (final OWLClassExpression operand : operands) {
+            final OWLClass owlClass = operand.asOWLClass();
+            if (direct) {
+                // An operand under another operand is not a direct subclass of the union.
+                boolean covered = false;
+                for (final OWLClassExpression other : operands)
+                    if (!other.equals(operand) && getSuperClasses(owlClass, false).containsEntity(other.asOWLClass()))
+                        covered = true;
+                if (!covered) subClasses.addNode(getEquivalentClasses(owlClass));
+            } else {
+                subClasses.addNode(getEquivalentClasses(owlClass));
+                subClasses.addAllNodes(super.getSubClasses(owlClass, false).getNodes());
+            }
+        }
+
+        return subClasses;
+    }
+
+    @Override
+    @NotNull
+    public NodeSet<OWLClass> getSuperClasses(@NotNull final OWLClassExpression ce, final boolean direct) {
+        final NodeSet<OWLClass> superClasses = super.getSuperClasses(ce, direct);
+        if (!direct || !ce.isOWLNothing()) return superClasses;
+
+        // The direct superclasses of Nothing are the leaves, which the structural reasoner can extend with Thing.
+        final OWLClassNodeSet leaves = new OWLClassNodeSet();
+        for (final Node<OWLClass> classNode : superClasses)
+            if (super.getSubClasses(classNode.getRepresentativeElement(), true).isBottomSingleton()) leaves.addNode(classNode);
+
+        return leaves;
+    }
+
+    @Override
+    @NotNull
+    public NodeSet<OWLClass> getTypes(@NotNull final OWLNamedIndividual ind, final boolean direct) {
+        final OWLClassNodeSet types = new OWLClassNodeSet();
+        for (final OWLClass owlClass : getTypeSet(ind, direct)) types.addNode(getEquivalentClasses(owlClass));
+
+        return types;
+    }
+
+    @Override
+    @NotNull
+    public NodeSet<OWLNamedIndividual> getInstances(@NotNull final OWLClassExpression ce, final boolean direct) {
+        if (ce.isAnonymous()) return super.getInstances(ce, direct);
+
+        final Node<OWLClass> classNode = getEquivalentClasses(ce.asOWLClass());
+
+        final OWLNamedIndividualNodeSet instances = new OWLNamedIndividualNodeSet();
+        for (final OWLNamedIndividual owlIndividual : getRootOntology().getIndividualsInSignature(Imports.INCLUDED))
+            for (final OWLClass owlClass : getTypeSet(owlIndividual, direct))
+                if (classNode.contains(owlClass)) {
+                    instances.addEntity(owlIndividual);
+                    break;
+                }
+
+        return instances;
+    }
+
+    @Override
+    @NotNull
+    public NodeSet<OWLNamedIndividual> getObjectPropertyValues(@NotNull final OWLNamedIndividual ind,
+                                                               @NotNull final OWLObjectPropertyExpression pe) {
+        final NodeSet<OWLNamedIndividual> toldValues = super.getObjectPropertyValues(ind, pe);
+        if (pe.isAnonymous() || !inverseValues.containsKey(pe.asOWLObjectProperty())) return toldValues;
+
+        final Set<OWLNamedIndividual> subjects = inverseValues.get(pe.asOWLObjectProperty()).get(ind);
+        if (subjects == null) return toldValues;
+
+        final OWLNamedIndividualNodeSet values = new OWLNamedIndividualNodeSet();
+        values.addAllNodes(toldValues.getNodes());
+        for (final OWLNamedIndividual subject : subjects) values.addEntity(subject);
+
+        return values;
+    }
+
+    @NotNull
+    private Set<OWLClass> getTypeSet(@NotNull final OWLNamedIndividual owlIndividual, final boolean direct) {
+        final Set<OWLClass> types = (direct ? directTypes : allTypes).get(owlIndividual);
+        if (types != null) return types;
+
+        return Collections.singleton(getDataFactory().getOWLThing());
+    }
+
+    private void infer() {
+        final OWLOntology ontology = getRootOntology();
+
+        inverseValues.clear();
+        final Map<OWLObjectPropertyExpression, Set<OWLObjectProperty>> inverses = new HashMap<>();
+        for (final OWLInverseObjectPropertiesAxiom owlAxiom : ontology.getAxioms(AxiomType.INVERSE_OBJECT_PROPERTIES, Imports.INCLUDED)) {
+            final OWLObjectPropertyExpression first = owlAxiom.getFirstProperty();
+            final OWLObjectPropertyExpression second = owlAxiom.getSecondProperty();
+            if (!second.isAnonymous()) inverses.computeIfAbsent(first, property -> new HashSet<>()).add(second.asOWLObjectProperty());
+            if (!first.isAnonymous()) inverses.computeIfAbsent(second, property -> new HashSet<>()).add(first.asOWLObjectProperty());
+        }
+
+        final Map<OWLNamedIndividual, Set<OWLClass>> toldTypes = new HashMap<>();
+        for (final OWLClassAssertionAxiom owlAxiom : ontology.getAxioms(AxiomType.CLASS_ASSERTION, Imports.INCLUDED))
+            if (owlAxiom.getIndividual().isNamed() && !owlAxiom.getClassExpression().isAnonymous())
+                addType(toldTypes, owlAxiom.getIndividual().asOWLNamedIndividual(), owlAxiom.getClassExpression().asOWLClass());
+
+        for (final OWLObjectPropertyAssertionAxiom owlAxiom : ontology.getAxioms(AxiomType.OBJECT_PROPERTY_ASSERTION, Imports.INCLUDED)) {
+            if (!owlAxiom.getSubject().isNamed() || !owlAxiom.getObject().isNamed()) continue;
+
+            final OWLNamedIndividual subject = owlAxiom.getSubject().asOWLNamedIndividual();
+            final OWLNamedIndividual object = owlAxiom.getObject().asOWLNamedIndividual();
+            final OWLObjectPropertyExpression property = owlAxiom.getProperty();
+            addRangeTypes(toldTypes, property, subject, object);
+
+            for (final OWLObjectProperty inverse : inverses.getOrDefault(property, Collections.emptySet())) {
+                inverseValues.computeIfAbsent(inverse, owlProperty -> new HashMap<>())
+                        .computeIfAbsent(object, owlIndividual -> new HashSet<>()).add(subject);
+                addRangeTypes(toldTypes, inverse, object, subject);
+            }
+        }
+
+        for (final OWLDataPropertyAssertionAxiom owlAxiom : ontology.getAxioms(AxiomType.DATA_PROPERTY_ASSERTION, Imports.INCLUDED)) {
+            if (!owlAxiom.getSubject().isNamed()) continue;
+
+            for (final OWLDataPropertyDomainAxiom owlDomainAxiom : ontology.getDataPropertyDomainAxioms(owlAxiom.getProperty().asOWLDataProperty()))
+                if (!owlDomainAxiom.getDomain().isAnonymous())
+                    addType(toldTypes, owlAxiom.getSubject().asOWLNamedIndividual(), owlDomainAxiom.getDomain().asOWLClass());
+        }
+
+        allTypes.clear();
+        directTypes.clear();
+        for (final Map.Entry<OWLNamedIndividual, Set<OWLClass>> entry : toldTypes.entrySet()) {
+            final Set<OWLClass> all = new HashSet<>();
+            for (final OWLClass owlClass : entry.getValue()) {
+                all.addAll(getEquivalentClasses(owlClass).getEntities());
+                all.addAll(getSuperClasses(owlClass, false).getFlattened());
+            }
+            all.add(getDataFactory().getOWLThing());
+            allTypes.put(entry.getKey(), all);
+
+            // The most specific told types are the direct ones.
+            final Set<OWLClass> direct = new HashSet<>();
+            for (final OWLClass owlClass : entry.getValue()) {
+                boolean general = false;
+                for (final OWLClass other : entry.getValue())
+                    if (getSuperClasses(other, false).containsEntity(owlClass)) general = true;
+                if (!general) direct.addAll(getEquivalentClasses(owlClass).getEntities());
+            }
+            directTypes.put(entry.getKey(), direct);
+        }
+    }
+
+    // Types implied by the named domains of the property for the subject and its named ranges for the object.
+    private void addRangeTypes(@NotNull final Map<OWLNamedIndividual, Set<OWLClass>> types,
+                               @NotNull final OWLObjectPropertyExpression property,
+                               @NotNull final OWLNamedIndividual subject, @NotNull final OWLNamedIndividual object) {
+        if (property.isAnonymous()) return;
+
+        final OWLOntology ontology = getRootOntology();
+        for (final OWLObjectPropertyDomainAxiom owlAxiom : ontology.getObjectPropertyDomainAxioms(property.asOWLObjectProperty()))
+            if (!owlAxiom.getDomain().isAnonymous()) addType(types, subject, owlAxiom.getDomain().asOWLClass());
+        for (final OWLObjectPropertyRangeAxiom owlAxiom : ontology.getObjectPropertyRangeAxioms(property.asOWLObjectProperty()))
+            if (!owlAxiom.getRange().isAnonymous()) addType(types, object, owlAxiom.getRange().asOWLClass());
+    }
+
+    private static void addType(@NotNull final Map<OWLNamedIndividual, Set<OWLClass>> types,
+                                @NotNull final OWLNamedIndividual owlIndividual, @NotNull final OWLClass owlClass) {
+        types.computeIfAbsent(owlIndividual, individual -> new HashSet<>()).add(owlClass);
+    }
+}
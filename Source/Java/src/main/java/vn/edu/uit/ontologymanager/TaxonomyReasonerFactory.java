@@ -0,0 +1,46 @@
+package vn.edu.uit.ontologymanager;
+
+import org.jetbrains.annotations.NotNull;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.BufferingMode;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerConfiguration;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+import org.semanticweb.owlapi.reasoner.SimpleConfiguration;
+
+public class TaxonomyReasonerFactory implements OWLReasonerFactory {
+
+    @NotNull
+    static final String NAME = "Taxonomy Reasoner";
+
+    @Override
+    @NotNull
+    public String getReasonerName() {
+        return NAME;
+    }
+
+    @Override
+    @NotNull
+    public OWLReasoner createNonBufferingReasoner(@NotNull final OWLOntology ontology) {
+        return createNonBufferingReasoner(ontology, new SimpleConfiguration());
+    }
+
+    @Override
+    @NotNull
+    public OWLReasoner createReasoner(@NotNull final OWLOntology ontology) {
+        return createReasoner(ontology, new SimpleConfiguration());
+    }
+
+    @Override
+    @NotNull
+    public OWLReasoner createNonBufferingReasoner(@NotNull final OWLOntology ontology,
+                                                  @NotNull final OWLReasonerConfiguration config) {
+        return new TaxonomyReasoner(ontology, config, BufferingMode.NON_BUFFERING);
+    }
+
+    @Override
+    @NotNull
+    public OWLReasoner createReasoner(@NotNull final OWLOntology ontology, @NotNull final OWLReasonerConfiguration config) {
+        return new TaxonomyReasoner(ontology, config, BufferingMode.BUFFERING);
+    }
+}
@@ -0,0 +1,387 @@
+package vn.edu.uit.server;
+
+import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Tagged binary form of the JSON documents exchanged with clients. Every value starts with a one-byte tag. Short
+// strings join a per-message table the first time they appear and are later written as a varint index into it, so
+// repeated keys such as "Id" and "Label" cost a couple of bytes. Objects and arrays end with an END tag.
+final class BinaryCodec {
+
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INTEGER = 3;
+    private static final int DOUBLE = 4;
+    private static final int STRING = 5;
+    private static final int STRING_REFERENCE = 6;
+    private static final int TEXT = 7;
+    private static final int ARRAY = 8;
+    private static final int OBJECT = 9;
+    private static final int END = 10;
+
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    // Arrays and objects are read recursively, so their nesting is limited before it can overflow the stack.
+    private static final int MAX_DEPTH = 64;
+
+    private BinaryCodec() {
+    }
+
+    @NotNull
+    static JsonElement read(@NotNull final byte[] bytes) throws JsonParseException {
+        final Reader reader = new Reader(bytes);
+        final JsonElement element = reader.readElement(reader.readTag());
+        if (reader.position != bytes.length) throw new JsonParseException("Unexpected data after binary document.");
+
+        return element;
+    }
+
+    private static final class Reader {
+
+        @NotNull
+        private final byte[] bytes;
+
+        @NotNull
+        private final List<String> strings = new ArrayList<>();
+
+        private int position;
+
+        private int depth;
+
+        Reader(@NotNull final byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readTag() {
+            if (position >= bytes.length) throw new JsonParseException("Unexpected end of binary document.");
+
+            return bytes[position++] & 0xff;
+        }
+
+        @NotNull
+        JsonElement readElement(final int tag) {
+            switch (tag) {
+                case NULL:
+                    return JsonNull.INSTANCE;
+                case FALSE:
+                    return new JsonPrimitive(false);
+                case TRUE:
+                    return new JsonPrimitive(true);
+                case INTEGER: {
+                    final long value = readVarLong();
+                    return new JsonPrimitive((value >>> 1) ^ -(value & 1));
+                }
+                case DOUBLE: {
+                    long bits = 0;
+                    for (int i = 0; i < 8; ++i) bits = (bits << 8) | (readTag() & 0xffL);
+                    return new JsonPrimitive(Double.longBitsToDouble(bits));
+                }
+                case STRING:
+                case STRING_REFERENCE:
+                case TEXT:
+                    return new JsonPrimitive(readString(tag));
+                case ARRAY: {
+                    enter();
+                    final JsonArray array = new JsonArray();
+                    int elementTag;
+                    while ((elementTag = readTag()) != END) array.add(readElement(elementTag));
+                    --depth;
+                    return array;
+                }
+                case OBJECT: {
+                    enter();
+                    final JsonObject object = new JsonObject();
+                    int nameTag;
+                    while ((nameTag = readTag()) != END) {
+                        final String name = readString(nameTag);
+                        object.add(name, readElement(readTag()));
+                    }
+                    --depth;
+                    return object;
+                }
+                default:
+                    throw new JsonParseException("Unknown binary tag " + tag + ".");
+            }
+        }
+
+        private void enter() {
+            if (++depth > MAX_DEPTH) throw new JsonParseException("Binary document is nested deeper than " + MAX_DEPTH + " levels.");
+        }
+
+        @NotNull
+        private String readString(final int tag) {
+            if (tag == STRING_REFERENCE) {
+                final long index = readVarLong();
+                if (index < 0 || index >= strings.size()) throw new JsonParseException("Invalid string reference " + index + ".");
+                return strings.get((int) index);
+            }
+            if (tag != STRING && tag != TEXT) throw new JsonParseException("Expected a string but found tag " + tag + ".");
+
+            final long length = readVarLong();
+            if (length < 0 || length > bytes.length - position) throw new JsonParseException("Unexpected end of binary document.");
+
+            final String value = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            if (tag == STRING) strings.add(value);
+
+            return value;
+        }
+
+        // Varints are written in as few bytes as possible, so a longer one is malformed. The tenth byte holds only the
+        // top bit of a long.
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = readTag();
+                if (shift == 63 && b > 1) break;
+
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    if (b == 0 && shift > 0) break;
+                    return value;
+                }
+            }
+            throw new JsonParseException("Malformed varint.");
+        }
+    }
+
+    static final class BinaryJsonWriter extends JsonWriter {
+
+        @NotNull
+        private static final Writer UNWRITABLE_WRITER = new Writer() {
+            @Override
+            public void write(@NotNull final char[] buffer, final int offset, final int length) {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void flush() {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void close() {
+                throw new AssertionError();
+            }
+        };
+
+        @NotNull
+        private final OutputStream out;
+
+        @NotNull
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        @Nullable
+        private String pendingName;
+
+        BinaryJsonWriter(@NotNull final OutputStream out) {
+            super(UNWRITABLE_WRITER);
+            this.out = out;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter beginArray() throws IOException {
+            writePendingName();
+            out.write(ARRAY);
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter endArray() throws IOException {
+            out.write(END);
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter beginObject() throws IOException {
+            writePendingName();
+            out.write(OBJECT);
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter endObject() throws IOException {
+            out.write(END);
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter name(@NotNull final String name) throws IOException {
+            if (pendingName != null) throw new IllegalStateException("Name \"" + pendingName + "\" has no value.");
+            pendingName = name;
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter value(@Nullable final String value) throws IOException {
+            if (value == null) return nullValue();
+
+            writePendingName();
+            writeString(value);
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter jsonValue(@Nullable final String value) throws IOException {
+            if (value == null) return nullValue();
+
+            writePendingName();
+            writeElement(new JsonParser().parse(value));
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter nullValue() throws IOException {
+            if (pendingName != null && !getSerializeNulls()) {
+                pendingName = null;
+                return this;
+            }
+
+            writePendingName();
+            out.write(NULL);
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter value(final boolean value) throws IOException {
+            writePendingName();
+            out.write(value ? TRUE : FALSE);
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter value(@Nullable final Boolean value) throws IOException {
+            if (value == null) return nullValue();
+
+            return value(value.booleanValue());
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter value(final double value) throws IOException {
+            writePendingName();
+            writeDouble(value);
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter value(final long value) throws IOException {
+            writePendingName();
+            writeLong(value);
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public JsonWriter value(@Nullable final Number value) throws IOException {
+            if (value == null) return nullValue();
+
+            writePendingName();
+            writeNumber(value);
+            return this;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+
+        private void writePendingName() throws IOException {
+            if (pendingName == null) return;
+
+            writeString(pendingName);
+            pendingName = null;
+        }
+
+        private void writeElement(@NotNull final JsonElement element) throws IOException {
+            if (element.isJsonNull()) out.write(NULL);
+            else if (element.isJsonArray()) {
+                out.write(ARRAY);
+                for (final JsonElement child : element.getAsJsonArray()) writeElement(child);
+                out.write(END);
+            } else if (element.isJsonObject()) {
+                out.write(OBJECT);
+                for (final Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                    writeString(entry.getKey());
+                    writeElement(entry.getValue());
+                }
+                out.write(END);
+            } else {
+                final JsonPrimitive primitive = element.getAsJsonPrimitive();
+                if (primitive.isBoolean()) out.write(primitive.getAsBoolean() ? TRUE : FALSE);
+                else if (primitive.isNumber()) writeNumber(primitive.getAsNumber());
+                else writeString(primitive.getAsString());
+            }
+        }
+
+        private void writeString(@NotNull final String value) throws IOException {
+            if (value.length() <= MAX_INTERNED_LENGTH) {
+                final Integer index = strings.get(value);
+                if (index != null) {
+                    out.write(STRING_REFERENCE);
+                    writeVarLong(index);
+                    return;
+                }
+                strings.put(value, strings.size());
+                out.write(STRING);
+            } else out.write(TEXT);
+
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeNumber(@NotNull final Number value) throws IOException {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+                writeLong(value.longValue());
+            else writeDouble(value.doubleValue());
+        }
+
+        private void writeLong(final long value) throws IOException {
+            out.write(INTEGER);
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeDouble(final double value) throws IOException {
+            out.write(DOUBLE);
+            final long bits = Double.doubleToLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (bits >>> shift) & 0xff);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7fL) != 0) {
+                out.write((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
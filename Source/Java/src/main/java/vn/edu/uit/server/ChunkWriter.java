@@ -0,0 +1,10 @@
+package vn.edu.uit.server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+public interface ChunkWriter {
+
+    void write(@NotNull Response chunk) throws IOException;
+}
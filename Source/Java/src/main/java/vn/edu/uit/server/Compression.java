@@ -0,0 +1,82 @@
+package vn.edu.uit.server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Raw deflate streams (no zlib header), which is what .NET's DeflateStream reads and writes.
+final class Compression {
+
+    private static final int CHUNK_LENGTH = 8 * 1024;
+
+    @NotNull
+    private static final byte[] PADDING = new byte[1];
+
+    // Each worker keeps its own instances so compressing a response does not allocate native zlib state.
+    @NotNull
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    @NotNull
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private Compression() {
+    }
+
+    @NotNull
+    static byte[] deflate(@NotNull final byte[] bytes) {
+        final Deflater deflater = DEFLATERS.get();
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(bytes.length / 4, 64));
+            final byte[] chunk = new byte[CHUNK_LENGTH];
+            while (!deflater.finished()) {
+                final int count = deflater.deflate(chunk);
+                outputStream.write(chunk, 0, count);
+            }
+
+            return outputStream.toByteArray();
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    // An inflated request is held to the same limit as any other frame.
+    @NotNull
+    static byte[] inflate(@NotNull final byte[] bytes, final int maxLength) throws IOException {
+        final Inflater inflater = INFLATERS.get();
+        try {
+            inflater.setInput(bytes);
+
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) Math.min(bytes.length * 4L, maxLength));
+            final byte[] chunk = new byte[CHUNK_LENGTH];
+            boolean padded = false;
+            while (!inflater.finished()) {
+                final int count = inflater.inflate(chunk);
+                // Without a zlib header the inflater may need one extra byte of input to see the end of the stream.
+                if (count == 0 && inflater.needsInput() && !padded) {
+                    inflater.setInput(PADDING);
+                    padded = true;
+                    continue;
+                }
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IOException("Truncated compressed frame.");
+
+                if (count > maxLength - outputStream.size())
+                    throw new IOException("Compressed frame expands beyond " + maxLength + " bytes.");
+                outputStream.write(chunk, 0, count);
+            }
+
+            return outputStream.toByteArray();
+        } catch (final DataFormatException e) {
+            throw new IOException("Invalid compressed frame.", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+}
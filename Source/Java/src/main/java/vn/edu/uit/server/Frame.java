@@ -0,0 +1,82 @@
+package vn.edu.uit.server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+// A frame starts with a little-endian int32. Old clients send the payload length there. When its highest bit is
+// set, the low byte holds flags instead and the payload length follows as a second little-endian int32.
+// A streamed response is a run of CHUNK frames closed by one END frame.
+final class Frame {
+
+    static final int HEADER_LENGTH = 4;
+
+    static final int EXTENDED_HEADER_LENGTH = 8;
+
+    static final int FLAG_BINARY = 0x01;
+
+    static final int FLAG_COMPRESSED = 0x02;
+
+    static final int FLAG_ACCEPTS_COMPRESSION = 0x04;
+
+    static final int FLAG_CHUNK = 0x08;
+
+    static final int FLAG_END = 0x10;
+
+    private static final int EXTENDED = 0x80;
+
+    final int flags;
+
+    @NotNull
+    final byte[] payload;
+
+    Frame(final int flags, @NotNull final byte[] payload) {
+        this.flags = flags;
+        this.payload = payload;
+    }
+
+    final boolean hasFlag(final int flag) {
+        return (flags & flag) != 0;
+    }
+
+    @NotNull
+    final byte[] encodeHeader() {
+        if (flags == 0) return encodeInt(payload.length);
+
+        final byte[] header = new byte[EXTENDED_HEADER_LENGTH];
+        header[0] = (byte) flags;
+        header[3] = (byte) EXTENDED;
+        System.arraycopy(encodeInt(payload.length), 0, header, HEADER_LENGTH, HEADER_LENGTH);
+
+        return header;
+    }
+
+    static boolean isExtended(@NotNull final byte[] header) {
+        return (header[3] & EXTENDED) != 0;
+    }
+
+    static int decodeFlags(@NotNull final byte[] header) {
+        return isExtended(header) ? header[0] & 0xff : 0;
+    }
+
+    // The length comes from the client, so it is checked before a buffer of that size is allocated.
+    static int decodeLength(@NotNull final byte[] header, final int maxLength) throws IOException {
+        final int offset = isExtended(header) ? HEADER_LENGTH : 0;
+        final int length = (((header[offset + 3] & 0xff) << 24) | ((header[offset + 2] & 0xff) << 16) | ((header[offset + 1] & 0xff) << 8) | (header[offset] & 0xff));
+        if (length < 0) throw new IOException("Invalid frame length " + length + ".");
+        if (length > maxLength) throw new IOException("Frame length " + length + " exceeds " + maxLength + " bytes.");
+
+        return length;
+    }
+
+    @NotNull
+    private static byte[] encodeInt(final int value) {
+        final byte[] bytes = new byte[HEADER_LENGTH];
+        bytes[0] = (byte) (value & 0xff);
+        bytes[1] = (byte) ((value >> 8) & 0xff);
+        bytes[2] = (byte) ((value >> 16) & 0xff);
+        bytes[3] = (byte) ((value >> 24) & 0xff);
+
+        return bytes;
+    }
+}
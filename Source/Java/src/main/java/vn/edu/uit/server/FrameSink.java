@@ -0,0 +1,10 @@
+package vn.edu.uit.server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+interface FrameSink {
+
+    void write(@NotNull Frame frame) throws IOException;
+}
@@ -0,0 +1,27 @@
+package vn.edu.uit.server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class NamedThreadFactory implements ThreadFactory {
+
+    @NotNull
+    private final String prefix;
+
+    @NotNull
+    private final AtomicInteger counter = new AtomicInteger();
+
+    public NamedThreadFactory(@NotNull final String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    @NotNull
+    public Thread newThread(@NotNull final Runnable runnable) {
+        final Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -10,6 +10,10 @@ import java.util.Map;
 
 public class Request {
 
+    @Nullable
+    @SerializedName("Id")
+    private final String id;
+
     @NotNull
     @SerializedName("Type")
     private final RequestType type;
@@ -18,9 +22,19 @@ public class Request {
     @SerializedName("Data")
     private final Map<String, Object> data;
 
+    @SerializedName("Stream")
+    private final boolean stream;
+
     private Request(@NotNull final Builder builder) {
+        this.id = builder.id;
         this.type = builder.type;
         this.data = builder.data;
+        this.stream = builder.stream;
+    }
+
+    @Nullable
+    public final String getId() {
+        return id;
     }
 
     @NotNull
@@ -33,18 +47,33 @@ public class Request {
         return data;
     }
 
+    public final boolean isStream() {
+        return stream;
+    }
+
     public class Builder implements Buildable<Request> {
 
         @NotNull
         private final RequestType type;
 
+        @Nullable
+        private String id;
+
         @Nullable
         private Map<String, Object> data;
 
+        private boolean stream;
+
         public Builder(@NotNull final RequestType type) {
             this.type = type;
         }
 
+        @NotNull
+        public Builder id(@Nullable final String id) {
+            this.id = id;
+            return this;
+        }
+
         @NotNull
         public Builder data(@NotNull final String key, @Nullable final Object value) {
             if (data == null) data = new HashMap<>();
@@ -52,6 +81,12 @@ public class Request {
             return this;
         }
 
+        @NotNull
+        public Builder stream(final boolean stream) {
+            this.stream = stream;
+            return this;
+        }
+
         @Override
         @NotNull
         public Request build() {
@@ -0,0 +1,127 @@
+package vn.edu.uit.server;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import vn.edu.uit.ontologymanager.OntologyManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static vn.edu.uit.server.Frame.*;
+import static vn.edu.uit.server.ResponseType.ERROR;
+
+final class RequestHandler {
+
+    @NotNull
+    private static final Logger LOGGER = Logger.getLogger(RequestHandler.class.getName());
+
+    @NotNull
+    private final Supplier<OntologyManager> manager;
+
+    @NotNull
+    private final Gson gson;
+
+    private final int compressionThreshold;
+
+    private final int streamChunkSize;
+
+    private final int maxFrameLength;
+
+    RequestHandler(@NotNull final Supplier<OntologyManager> manager, final int compressionThreshold, final int streamChunkSize,
+                   final int maxFrameLength) {
+        this.manager = manager;
+        this.compressionThreshold = compressionThreshold;
+        this.streamChunkSize = streamChunkSize;
+        this.maxFrameLength = maxFrameLength;
+        gson = new GsonBuilder().create();
+    }
+
+    @NotNull
+    Request decode(@NotNull final Frame frame) throws IOException {
+        final byte[] receivedBytes = frame.hasFlag(FLAG_COMPRESSED) ? Compression.inflate(frame.payload, maxFrameLength) : frame.payload;
+
+        final Request request;
+        if (frame.hasFlag(FLAG_BINARY)) {
+            LOGGER.info("Server receives " + receivedBytes.length + " binary bytes.");
+
+            request = gson.fromJson(BinaryCodec.read(receivedBytes), Request.class);
+        } else {
+            final String receivedMessage = new String(receivedBytes, StandardCharsets.UTF_8);
+            LOGGER.info("Server receives " + receivedBytes.length + " bytes.");
+            if (LOGGER.isLoggable(Level.FINE)) LOGGER.fine("Server receives \"" + receivedMessage + "\"");
+
+            request = gson.fromJson(receivedMessage, Request.class);
+        }
+        if (request == null || request.getType() == null) throw new JsonParseException("Request type not found.");
+
+        return request;
+    }
+
+    // Streamed requests send their chunks to the sink as they are produced and return the end frame.
+    @NotNull
+    Frame handle(@NotNull final Request request, final int requestFlags, @NotNull final FrameSink chunkSink) throws IOException {
+        final OntologyManager manager = this.manager.get();
+        if (!request.isStream()) return encode(manager.process(request), requestFlags, 0);
+
+        final Response end = manager.stream(request, streamChunkSize, chunk -> chunkSink.write(encode(chunk, requestFlags, FLAG_CHUNK)));
+
+        return encode(end, requestFlags, FLAG_END);
+    }
+
+    @NotNull
+    Frame error(@NotNull final Throwable e, final int requestFlags) {
+        return error(e, null, requestFlags);
+    }
+
+    // Errors of pipelined requests carry the request id, so the client can tell which request failed.
+    @NotNull
+    Frame error(@NotNull final Throwable e, @Nullable final String id, final int requestFlags) {
+        LOGGER.log(Level.WARNING, e.toString(), e);
+
+        return encode(new Response.Builder(ERROR).id(id).message(e.toString()).build(), requestFlags, 0);
+    }
+
+    // Responses use the encoding of the request they answer, and are compressed only for clients that accept it.
+    @NotNull
+    private Frame encode(@NotNull final Response response, final int requestFlags, final int frameFlags) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final int flags;
+        if ((requestFlags & FLAG_BINARY) != 0) {
+            gson.toJson(response, Response.class, new BinaryCodec.BinaryJsonWriter(outputStream));
+            flags = frameFlags | FLAG_BINARY;
+        } else {
+            final JsonWriter writer = new JsonWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            gson.toJson(response, Response.class, writer);
+            try {
+                writer.flush();
+            } catch (final IOException e) {
+                throw new JsonIOException(e);
+            }
+            flags = frameFlags;
+        }
+        final byte[] sendingBytes = outputStream.toByteArray();
+
+        LOGGER.info("Server sends " + sendingBytes.length + ((flags & FLAG_BINARY) != 0 ? " binary bytes." : " bytes."));
+        if ((flags & FLAG_BINARY) == 0 && LOGGER.isLoggable(Level.FINE))
+            LOGGER.fine("Server sends \"" + new String(sendingBytes, StandardCharsets.UTF_8) + "\"");
+
+        if ((requestFlags & FLAG_ACCEPTS_COMPRESSION) == 0 || sendingBytes.length < compressionThreshold)
+            return new Frame(flags, sendingBytes);
+
+        final byte[] compressedBytes = Compression.deflate(sendingBytes);
+        if (compressedBytes.length >= sendingBytes.length) return new Frame(flags, sendingBytes);
+        LOGGER.fine("Server compresses " + sendingBytes.length + " bytes to " + compressedBytes.length + " bytes.");
+
+        return new Frame(flags | FLAG_COMPRESSED, compressedBytes);
+    }
+}
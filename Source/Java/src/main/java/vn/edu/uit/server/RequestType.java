@@ -15,6 +15,12 @@ public enum RequestType {
     @SerializedName("GetSubClasses")
     GET_SUBCLASSES,
 
+    @SerializedName("IsSubClass")
+    IS_SUBCLASS,
+
+    @SerializedName("GetExpressionSubClasses")
+    GET_EXPRESSION_SUBCLASSES,
+
     @SerializedName("GetDomainRelations")
     GET_DOMAIN_RELATIONS,
 
@@ -27,6 +33,9 @@ public enum RequestType {
     @SerializedName("GetClassIndividuals")
     GET_CLASS_INDIVIDUALS,
 
+    @SerializedName("GetExpressionIndividuals")
+    GET_EXPRESSION_INDIVIDUALS,
+
     @SerializedName("GetRelation")
     GET_RELATION,
 
@@ -71,4 +80,40 @@ public enum RequestType {
 
     @SerializedName("GetAttributeValuesByAttributeName")
     GET_ATTRIBUTE_VALUES_BY_ATTRIBUTE_NAME,
+
+    @SerializedName("GetIndividualsByAttributeValue")
+    GET_INDIVIDUALS_BY_ATTRIBUTE_VALUE,
+
+    @SerializedName("SearchEntities")
+    SEARCH_ENTITIES,
+
+    @SerializedName("GetReasonerPoolStats")
+    GET_REASONER_POOL_STATS,
+
+    @SerializedName("Batch")
+    BATCH,
+
+    @SerializedName("AddIndividual")
+    ADD_INDIVIDUAL,
+
+    @SerializedName("AddClassAssertion")
+    ADD_CLASS_ASSERTION,
+
+    @SerializedName("SetAttributeValue")
+    SET_ATTRIBUTE_VALUE,
+
+    @SerializedName("AddRelationValue")
+    ADD_RELATION_VALUE;
+
+    public boolean isWrite() {
+        switch (this) {
+            case ADD_INDIVIDUAL:
+            case ADD_CLASS_ASSERTION:
+            case SET_ATTRIBUTE_VALUE:
+            case ADD_RELATION_VALUE:
+                return true;
+            default:
+                return false;
+        }
+    }
 }
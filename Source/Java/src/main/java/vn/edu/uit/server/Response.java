@@ -10,6 +10,10 @@ import java.util.Map;
 
 public class Response {
 
+    @Nullable
+    @SerializedName("Id")
+    private final String id;
+
     @NotNull
     @SerializedName("Status")
     private final ResponseType status;
@@ -23,6 +27,7 @@ public class Response {
     private final String message;
 
     Response(@NotNull final Builder builder) {
+        id = builder.id;
         status = builder.status;
         data = builder.data;
         message = builder.message;
@@ -33,6 +38,9 @@ public class Response {
         @NotNull
         private final ResponseType status;
 
+        @Nullable
+        private String id;
+
         @Nullable
         private Map<String, Object> data;
 
@@ -43,6 +51,19 @@ public class Response {
             this.status = status;
         }
 
+        public Builder(@NotNull final Response response) {
+            id = response.id;
+            status = response.status;
+            data = response.data;
+            message = response.message;
+        }
+
+        @NotNull
+        public Builder id(@Nullable final String id) {
+            this.id = id;
+            return this;
+        }
+
         @NotNull
         public Builder data(@NotNull final String key, @Nullable final Object value) {
             if (data == null) data = new HashMap<>();
@@ -0,0 +1,534 @@
+package vn.edu.uit.server;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import vn.edu.uit.ontologymanager.OntologyManager;
+import vn.edu.uit.shared.Buildable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static vn.edu.uit.server.Frame.EXTENDED_HEADER_LENGTH;
+import static vn.edu.uit.server.Frame.HEADER_LENGTH;
+
+public class SelectorServer {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    public static final int DEFAULT_POOLED_BUFFERS = 64;
+
+    @NotNull
+    private static final Logger LOGGER = Logger.getLogger(SelectorServer.class.getName());
+
+    @NotNull
+    private final RequestHandler handler;
+
+    private final int port;
+
+    private final int workers;
+
+    private final boolean keepAlive;
+
+    private final int idleTimeout;
+
+    private final int maxRequestsPerConnection;
+
+    private final int maxPipelinedRequests;
+
+    private final int maxFrameLength;
+
+    @NotNull
+    private final BufferPool bufferPool;
+
+    @NotNull
+    private final ConcurrentLinkedQueue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running;
+
+    @Nullable
+    private volatile Selector selector;
+
+    SelectorServer(@NotNull final Builder builder) {
+        handler = new RequestHandler(builder.manager, builder.compressionThreshold, builder.streamChunkSize,
+                builder.maxFrameLength);
+        port = builder.port;
+        workers = builder.workers;
+        keepAlive = builder.keepAlive;
+        idleTimeout = builder.idleTimeout;
+        maxRequestsPerConnection = builder.maxRequestsPerConnection;
+        maxPipelinedRequests = builder.maxPipelinedRequests;
+        maxFrameLength = builder.maxFrameLength;
+        bufferPool = new BufferPool(builder.bufferSize, builder.pooledBuffers);
+    }
+
+    public final void stop() {
+        running = false;
+
+        final Selector currentSelector = selector;
+        if (currentSelector != null) currentSelector.wakeup();
+    }
+
+    public final void run() throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(workers, new NamedThreadFactory("selector-worker"));
+
+        try (final Selector currentSelector = Selector.open();
+             final ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(currentSelector, SelectionKey.OP_ACCEPT);
+
+            selector = currentSelector;
+            LOGGER.info("Selector server listens on port " + port + " with " + workers + " workers.");
+
+            final long sweepInterval = Math.min(idleTimeout, 1000);
+            long lastSweep = System.currentTimeMillis();
+
+            running = true;
+            while (running) {
+                currentSelector.select(keepAlive ? sweepInterval : 0);
+
+                Connection pending;
+                while ((pending = pendingWrites.poll()) != null) {
+                    try {
+                        pending.flush();
+                    } catch (final IOException | RuntimeException e) {
+                        LOGGER.log(Level.WARNING, e.toString(), e);
+                        pending.close();
+                    }
+                }
+
+                final Iterator<SelectionKey> keys = currentSelector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        accept(serverChannel, currentSelector, executor);
+                        continue;
+                    }
+
+                    // A failure is contained to its connection, so one bad client cannot stop the server.
+                    final Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) connection.read();
+                        if (key.isValid() && key.isWritable()) connection.flush();
+                    } catch (final IOException | RuntimeException e) {
+                        LOGGER.log(Level.WARNING, e.toString(), e);
+                        connection.close();
+                    }
+                }
+
+                final long now = System.currentTimeMillis();
+                if (keepAlive && now - lastSweep >= sweepInterval) {
+                    lastSweep = now;
+                    for (final SelectionKey key : currentSelector.keys())
+                        if (key.attachment() instanceof Connection) {
+                            final Connection connection = (Connection) key.attachment();
+                            if (connection.isIdleSince(now - idleTimeout)) {
+                                LOGGER.fine("Connection is idle for " + idleTimeout + " ms, closing it.");
+                                connection.close();
+                            }
+                        }
+                }
+            }
+
+            for (final SelectionKey key : currentSelector.keys())
+                if (key.attachment() instanceof Connection) ((Connection) key.attachment()).close();
+        } finally {
+            selector = null;
+            executor.shutdown();
+        }
+    }
+
+    private void accept(@NotNull final ServerSocketChannel serverChannel, @NotNull final Selector currentSelector,
+                        @NotNull final ExecutorService executor) {
+        try {
+            final SocketChannel channel = serverChannel.accept();
+            if (channel == null) return;
+
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            final SelectionKey key = channel.register(currentSelector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key, executor));
+        } catch (final IOException e) {
+            LOGGER.log(Level.WARNING, e.toString(), e);
+        }
+    }
+
+    private final class Connection {
+
+        @NotNull
+        private final SocketChannel channel;
+
+        @NotNull
+        private final SelectionKey key;
+
+        @NotNull
+        private final ExecutorService executor;
+
+        @NotNull
+        private final byte[] header = new byte[EXTENDED_HEADER_LENGTH];
+
+        private int headerLength = HEADER_LENGTH;
+
+        private int headerRead;
+
+        @Nullable
+        private byte[] body;
+
+        private int bodyRead;
+
+        // Frames wait here to be decoded by one worker at a time, which keeps requests without an id in order.
+        @NotNull
+        private final ConcurrentLinkedQueue<Frame> frames = new ConcurrentLinkedQueue<>();
+
+        @NotNull
+        private final AtomicBoolean decoding = new AtomicBoolean();
+
+        @NotNull
+        private final ConcurrentLinkedQueue<Runnable> inbound = new ConcurrentLinkedQueue<>();
+
+        private int received;
+
+        private long lastActivity = System.currentTimeMillis();
+
+        private volatile boolean inFlight;
+
+        @NotNull
+        private final AtomicInteger pipelined = new AtomicInteger();
+
+        @NotNull
+        private final ConcurrentLinkedQueue<ByteBuffer[]> output = new ConcurrentLinkedQueue<>();
+
+        @Nullable
+        private ByteBuffer[] writing;
+
+        private int writingIndex;
+
+        private boolean closeAfterWrite;
+
+        Connection(@NotNull final SocketChannel channel, @NotNull final SelectionKey key, @NotNull final ExecutorService executor) {
+            this.channel = channel;
+            this.key = key;
+            this.executor = executor;
+        }
+
+        boolean isIdleSince(final long time) {
+            return !isBusy() && inbound.isEmpty() && lastActivity < time;
+        }
+
+        private boolean isBusy() {
+            return inFlight || pipelined.get() > 0 || writing != null || !output.isEmpty();
+        }
+
+        void read() throws IOException {
+            lastActivity = System.currentTimeMillis();
+
+            final ByteBuffer buffer = bufferPool.acquire();
+            try {
+                final int count = channel.read(buffer);
+                if (count < 0) closeAfterWrite = true;
+                else {
+                    buffer.flip();
+                    decode(buffer);
+                }
+            } finally {
+                bufferPool.release(buffer);
+            }
+
+            resume();
+        }
+
+        private void decode(@NotNull final ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining() && received < maxRequests()) {
+                if (body == null) {
+                    final int count = Math.min(headerLength - headerRead, buffer.remaining());
+                    buffer.get(header, headerRead, count);
+                    headerRead += count;
+                    if (headerRead == HEADER_LENGTH && Frame.isExtended(header)) headerLength = EXTENDED_HEADER_LENGTH;
+                    if (headerRead < headerLength) continue;
+
+                    body = new byte[Frame.decodeLength(header, maxFrameLength)];
+                    bodyRead = 0;
+                }
+
+                final int count = Math.min(body.length - bodyRead, buffer.remaining());
+                buffer.get(body, bodyRead, count);
+                bodyRead += count;
+
+                if (bodyRead == body.length) {
+                    final Frame frame = new Frame(Frame.decodeFlags(header), body);
+                    body = null;
+                    headerRead = 0;
+                    headerLength = HEADER_LENGTH;
+                    ++received;
+
+                    receive(frame);
+                }
+            }
+        }
+
+        // Decoding inflates and parses the whole request, so it runs on the workers rather than the selector thread.
+        // A frame counts as pipelined until it is decoded, which also bounds how many wait to be decoded.
+        private void receive(@NotNull final Frame frame) {
+            pipelined.incrementAndGet();
+            frames.offer(frame);
+            if (decoding.compareAndSet(false, true)) executor.execute(this::decodeFrames);
+        }
+
+        private void decodeFrames() {
+            do {
+                Frame frame;
+                while ((frame = frames.poll()) != null) decodeFrame(frame);
+                decoding.set(false);
+            } while (!frames.isEmpty() && decoding.compareAndSet(false, true));
+        }
+
+        private void decodeFrame(@NotNull final Frame frame) {
+            final Request request;
+            try {
+                request = handler.decode(frame);
+            } catch (final Exception | StackOverflowError e) {
+                complete(handler.error(e, frame.flags), true);
+                return;
+            }
+
+            // Requests carrying an id may be answered out of order, so they are handed to the workers at once.
+            // Requests without an id are answered one at a time, in the order they arrived, as the selector thread
+            // hands them out. Such a request is queued before it stops counting as pipelined, so the connection
+            // never looks idle in between.
+            if (request.getId() == null) {
+                inbound.offer(() -> complete(respond(request, frame.flags), false));
+                pipelined.decrementAndGet();
+                wakeUp();
+            } else executor.execute(() -> complete(respond(request, frame.flags), true));
+        }
+
+        @NotNull
+        private Frame respond(@NotNull final Request request, final int requestFlags) {
+            try {
+                return handler.handle(request, requestFlags, this::send);
+            } catch (final Exception | StackOverflowError e) {
+                return handler.error(e, request.getId(), requestFlags);
+            }
+        }
+
+        // The frame is queued before the request stops counting as busy, so the connection is not closed without it.
+        private void complete(@NotNull final Frame frame, final boolean isPipelined) {
+            queue(frame);
+            if (isPipelined) pipelined.decrementAndGet();
+            else inFlight = false;
+            wakeUp();
+        }
+
+        private void send(@NotNull final Frame frame) {
+            queue(frame);
+            wakeUp();
+        }
+
+        private void queue(@NotNull final Frame frame) {
+            output.offer(new ByteBuffer[]{ByteBuffer.wrap(frame.encodeHeader()), ByteBuffer.wrap(frame.payload)});
+        }
+
+        // The selector thread flushes the output and then resumes the connection.
+        private void wakeUp() {
+            pendingWrites.offer(this);
+
+            final Selector currentSelector = selector;
+            if (currentSelector != null) currentSelector.wakeup();
+        }
+
+        private void resume() {
+            if (!key.isValid()) return;
+
+            if (!inFlight && !inbound.isEmpty()) {
+                inFlight = true;
+                executor.execute(inbound.poll());
+            }
+
+            final boolean exhausted = closeAfterWrite || received >= maxRequests();
+            if (exhausted && !isBusy() && inbound.isEmpty()) {
+                close();
+                return;
+            }
+
+            // Stop reading while ordered requests wait or too many pipelined ones are running.
+            final boolean readable = !exhausted && inbound.isEmpty() && pipelined.get() < maxPipelinedRequests;
+            if (readable) key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            else key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+
+        void flush() throws IOException {
+            if (!key.isValid()) return;
+
+            while (true) {
+                if (writing == null) {
+                    final List<ByteBuffer> buffers = new ArrayList<>();
+                    ByteBuffer[] frame;
+                    while ((frame = output.poll()) != null) Collections.addAll(buffers, frame);
+                    if (buffers.isEmpty()) break;
+
+                    writing = buffers.toArray(new ByteBuffer[buffers.size()]);
+                    writingIndex = 0;
+                }
+
+                channel.write(writing, writingIndex, writing.length - writingIndex);
+                while (writingIndex < writing.length && !writing[writingIndex].hasRemaining()) writingIndex++;
+
+                if (writingIndex < writing.length) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                writing = null;
+            }
+
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            lastActivity = System.currentTimeMillis();
+            resume();
+        }
+
+        private int maxRequests() {
+            return keepAlive ? maxRequestsPerConnection : 1;
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, e.toString(), e);
+            }
+        }
+    }
+
+    public static class Builder implements Buildable<SelectorServer> {
+
+        @NotNull
+        private final Supplier<OntologyManager> manager;
+
+        private final int port;
+
+        private int workers = Server.DEFAULT_WORKERS;
+
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+        private int pooledBuffers = DEFAULT_POOLED_BUFFERS;
+
+        private boolean keepAlive;
+
+        private int idleTimeout = Server.DEFAULT_IDLE_TIMEOUT;
+
+        private int maxRequestsPerConnection = Server.DEFAULT_MAX_REQUESTS_PER_CONNECTION;
+
+        private int maxPipelinedRequests = Server.DEFAULT_MAX_PIPELINED_REQUESTS;
+
+        private int compressionThreshold = Server.DEFAULT_COMPRESSION_THRESHOLD;
+
+        private int streamChunkSize = Server.DEFAULT_STREAM_CHUNK_SIZE;
+
+        private int maxFrameLength = Server.DEFAULT_MAX_FRAME_LENGTH;
+
+        public Builder(@NotNull final OntologyManager manager, final int port) {
+            this(() -> manager, port);
+        }
+
+        // Every request is answered by the manager the supplier returns when the request starts.
+        public Builder(@NotNull final Supplier<OntologyManager> manager, final int port) {
+            this.manager = manager;
+            this.port = port;
+        }
+
+        @NotNull
+        public Builder workers(final int workers) {
+            if (workers < 1) throw new IllegalArgumentException("Number of workers must be positive.");
+            this.workers = workers;
+            return this;
+        }
+
+        @NotNull
+        public Builder bufferSize(final int bufferSize) {
+            if (bufferSize < HEADER_LENGTH) throw new IllegalArgumentException("Buffer size is too small.");
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        @NotNull
+        public Builder pooledBuffers(final int pooledBuffers) {
+            if (pooledBuffers < 0) throw new IllegalArgumentException("Number of pooled buffers must not be negative.");
+            this.pooledBuffers = pooledBuffers;
+            return this;
+        }
+
+        @NotNull
+        public Builder keepAlive(final boolean keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        @NotNull
+        public Builder idleTimeout(final int idleTimeout) {
+            if (idleTimeout < 1) throw new IllegalArgumentException("Idle timeout must be positive.");
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        @NotNull
+        public Builder maxRequestsPerConnection(final int maxRequestsPerConnection) {
+            if (maxRequestsPerConnection < 1)
+                throw new IllegalArgumentException("Maximum requests per connection must be positive.");
+            this.maxRequestsPerConnection = maxRequestsPerConnection;
+            return this;
+        }
+
+        @NotNull
+        public Builder maxPipelinedRequests(final int maxPipelinedRequests) {
+            if (maxPipelinedRequests < 1)
+                throw new IllegalArgumentException("Maximum pipelined requests must be positive.");
+            this.maxPipelinedRequests = maxPipelinedRequests;
+            return this;
+        }
+
+        @NotNull
+        public Builder compressionThreshold(final int compressionThreshold) {
+            if (compressionThreshold < 0) throw new IllegalArgumentException("Compression threshold must not be negative.");
+            this.compressionThreshold = compressionThreshold;
+            return this;
+        }
+
+        @NotNull
+        public Builder streamChunkSize(final int streamChunkSize) {
+            if (streamChunkSize < 1) throw new IllegalArgumentException("Stream chunk size must be positive.");
+            this.streamChunkSize = streamChunkSize;
+            return this;
+        }
+
+        @NotNull
+        public Builder maxFrameLength(final int maxFrameLength) {
+            if (maxFrameLength < 1) throw new IllegalArgumentException("Maximum frame length must be positive.");
+            this.maxFrameLength = maxFrameLength;
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public SelectorServer build() {
+            return new SelectorServer(this);
+        }
+    }
+}
@@ -1,72 +1,331 @@
 package vn.edu.uit.server;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import vn.edu.uit.ontologymanager.OntologyManager;
+import vn.edu.uit.shared.Buildable;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static vn.edu.uit.server.Frame.EXTENDED_HEADER_LENGTH;
+import static vn.edu.uit.server.Frame.HEADER_LENGTH;
+
 public class Server {
     public static final int DEFAULT_PORT = 2002;
 
+    public static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors() * 2;
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    public static final int DEFAULT_IDLE_TIMEOUT = 30000;
+
+    public static final int DEFAULT_MAX_REQUESTS_PER_CONNECTION = 100;
+
+    public static final int DEFAULT_MAX_PIPELINED_REQUESTS = 16;
+
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 4 * 1024;
+
+    public static final int DEFAULT_STREAM_CHUNK_SIZE = 64;
+
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
     @NotNull
     private static final Logger LOGGER = Logger.getLogger(Server.class.getName());
+
     @NotNull
-    private final OntologyManager manager;
+    private final RequestHandler handler;
+
     private final int port;
-    private boolean running;
 
-    public Server(@NotNull final OntologyManager manager, final int port) {
-        this.manager = manager;
-        this.port = port;
+    private final int workers;
+
+    private final int queueCapacity;
+
+    private final boolean keepAlive;
+
+    private final int idleTimeout;
+
+    private final int maxRequestsPerConnection;
+
+    private final int maxPipelinedRequests;
+
+    private final int maxFrameLength;
+
+    private volatile boolean running;
+
+    @Nullable
+    private volatile ServerSocket serverSocket;
+
+    Server(@NotNull final Builder builder) {
+        handler = new RequestHandler(builder.manager, builder.compressionThreshold, builder.streamChunkSize,
+                builder.maxFrameLength);
+        port = builder.port;
+        workers = builder.workers;
+        queueCapacity = builder.queueCapacity;
+        keepAlive = builder.keepAlive;
+        idleTimeout = builder.idleTimeout;
+        maxRequestsPerConnection = builder.maxRequestsPerConnection;
+        maxPipelinedRequests = builder.maxPipelinedRequests;
+        maxFrameLength = builder.maxFrameLength;
     }
 
     public final void stop() {
         running = false;
+
+        final ServerSocket socket = serverSocket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, e.toString(), e);
+            }
+        }
     }
 
     public final void run() throws IOException {
-        final ServerSocket serverSocket = new ServerSocket(port);
-
-        running = true;
-        while (running) {
-            final Socket socket = serverSocket.accept();
-
-            final InputStream inputStream = socket.getInputStream();
-            final OutputStream outputStream = socket.getOutputStream();
-
-            final byte[] receivedLengthInBytes = new byte[4];
-            inputStream.read(receivedLengthInBytes, 0, 4);
-            final int receivedLength = (((receivedLengthInBytes[3] & 0xff) << 24) | ((receivedLengthInBytes[2] & 0xff) << 16) | ((receivedLengthInBytes[1] & 0xff) << 8) | (receivedLengthInBytes[0] & 0xff));
-            final byte[] receivedBytes = new byte[receivedLength];
-            inputStream.read(receivedBytes, 0, receivedLength);
-            final String receivedMessage = new String(receivedBytes, "UTF-8");
-            LOGGER.info("Server receives " + receivedLength + " bytes: \"" + receivedMessage + "\"");
-
-            final String resultMessage = manager.process(receivedMessage);
-
-            final ByteBuffer sendingByteBuffer = Charset.forName("UTF-8").encode(resultMessage);
-            final byte[] sendingBytes = new byte[sendingByteBuffer.remaining()];
-            sendingByteBuffer.get(sendingBytes);
-            final int sendingLength = sendingBytes.length;
-            final byte[] sendingLengthInBytes = new byte[4];
-            sendingLengthInBytes[0] = (byte) (sendingLength & 0xff);
-            sendingLengthInBytes[1] = (byte) ((sendingLength >> 8) & 0xff);
-            sendingLengthInBytes[2] = (byte) ((sendingLength >> 16) & 0xff);
-            sendingLengthInBytes[3] = (byte) ((sendingLength >> 24) & 0xff);
-            outputStream.write(sendingLengthInBytes);
-            outputStream.write(sendingBytes);
-            LOGGER.info("Server sends " + sendingLength + " bytes: \"" + resultMessage + "\"");
-
-            socket.close();
-        }
-
-        serverSocket.close();
+        final ExecutorService executor = createExecutor();
+        final ExecutorService queryExecutor = Executors.newFixedThreadPool(workers, new NamedThreadFactory("server-query"));
+
+        try (final ServerSocket socket = new ServerSocket(port)) {
+            serverSocket = socket;
+            LOGGER.info("Server listens on port " + port + " with " + workers + " workers.");
+
+            running = true;
+            while (running) {
+                final Socket connection;
+                try {
+                    connection = socket.accept();
+                } catch (final SocketException e) {
+                    if (!running) break;
+                    throw e;
+                }
+
+                executor.execute(() -> handle(connection, queryExecutor));
+            }
+        } finally {
+            serverSocket = null;
+            executor.shutdown();
+            queryExecutor.shutdown();
+        }
+    }
+
+    @NotNull
+    private ExecutorService createExecutor() {
+        // When every worker is busy and the queue is full, the accept thread serves the connection itself,
+        // which stops it from accepting more clients until the load drops.
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new NamedThreadFactory("server-worker"), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void handle(@NotNull final Socket socket, @NotNull final ExecutorService queryExecutor) {
+        final Semaphore pipeline = new Semaphore(maxPipelinedRequests);
+        try {
+            if (keepAlive) socket.setSoTimeout(idleTimeout);
+
+            final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final OutputStream outputStream = new BufferedOutputStream(socket.getOutputStream());
+
+            final int maxRequests = keepAlive ? maxRequestsPerConnection : 1;
+            for (int served = 0; served < maxRequests; ++served) {
+                final Frame frame;
+                try {
+                    frame = readFrame(inputStream, maxFrameLength);
+                } catch (final SocketTimeoutException e) {
+                    LOGGER.fine("Connection is idle for " + idleTimeout + " ms, closing it.");
+                    break;
+                }
+                if (frame == null) break;
+
+                final Request request;
+                try {
+                    request = handler.decode(frame);
+                } catch (final Exception | StackOverflowError e) {
+                    writeFrame(outputStream, handler.error(e, frame.flags));
+                    continue;
+                }
+
+                // Requests carrying an id may be answered out of order, so they run on the query workers
+                // while this thread keeps reading. Requests without an id are answered in order.
+                if (request.getId() == null) respond(outputStream, request, frame.flags);
+                else {
+                    pipeline.acquire();
+                    queryExecutor.execute(() -> {
+                        try {
+                            respond(outputStream, request, frame.flags);
+                        } catch (final IOException e) {
+                            LOGGER.log(Level.WARNING, e.toString(), e);
+                        } finally {
+                            pipeline.release();
+                        }
+                    });
+                }
+            }
+
+            pipeline.acquire(maxPipelinedRequests);
+        } catch (final IOException e) {
+            LOGGER.log(Level.WARNING, e.toString(), e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, e.toString(), e);
+            }
+        }
+    }
+
+    // Any failure to answer is answered with an error, so a client waiting for the request does not wait forever.
+    // Only a failure to write to the client leaves the request unanswered.
+    private void respond(@NotNull final OutputStream outputStream, @NotNull final Request request, final int requestFlags) throws IOException {
+        Frame response;
+        try {
+            response = handler.handle(request, requestFlags, chunk -> writeFrame(outputStream, chunk));
+        } catch (final IOException e) {
+            throw e;
+        } catch (final Exception | StackOverflowError e) {
+            response = handler.error(e, request.getId(), requestFlags);
+        }
+
+        writeFrame(outputStream, response);
+    }
+
+    @Nullable
+    static Frame readFrame(@NotNull final DataInputStream inputStream, final int maxFrameLength) throws IOException {
+        final byte[] header = new byte[EXTENDED_HEADER_LENGTH];
+        try {
+            inputStream.readFully(header, 0, HEADER_LENGTH);
+        } catch (final EOFException e) {
+            return null;
+        }
+        if (Frame.isExtended(header)) inputStream.readFully(header, HEADER_LENGTH, EXTENDED_HEADER_LENGTH - HEADER_LENGTH);
+        final int receivedLength = Frame.decodeLength(header, maxFrameLength);
+
+        final byte[] receivedBytes = new byte[receivedLength];
+        inputStream.readFully(receivedBytes, 0, receivedLength);
+
+        return new Frame(Frame.decodeFlags(header), receivedBytes);
+    }
+
+    static void writeFrame(@NotNull final OutputStream outputStream, @NotNull final Frame frame) throws IOException {
+        synchronized (outputStream) {
+            outputStream.write(frame.encodeHeader());
+            outputStream.write(frame.payload);
+            outputStream.flush();
+        }
+    }
+
+    public static class Builder implements Buildable<Server> {
+
+        @NotNull
+        private final Supplier<OntologyManager> manager;
+
+        private final int port;
+
+        private int workers = DEFAULT_WORKERS;
+
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+        private boolean keepAlive;
+
+        private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+        private int maxRequestsPerConnection = DEFAULT_MAX_REQUESTS_PER_CONNECTION;
+
+        private int maxPipelinedRequests = DEFAULT_MAX_PIPELINED_REQUESTS;
+
+        private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+
+        private int streamChunkSize = DEFAULT_STREAM_CHUNK_SIZE;
+
+        private int maxFrameLength = DEFAULT_MAX_FRAME_LENGTH;
+
+        public Builder(@NotNull final OntologyManager manager, final int port) {
+            this(() -> manager, port);
+        }
+
+        // Every request is answered by the manager the supplier returns when the request starts.
+        public Builder(@NotNull final Supplier<OntologyManager> manager, final int port) {
+            this.manager = manager;
+            this.port = port;
+        }
+
+        @NotNull
+        public Builder workers(final int workers) {
+            if (workers < 1) throw new IllegalArgumentException("Number of workers must be positive.");
+            this.workers = workers;
+            return this;
+        }
+
+        @NotNull
+        public Builder queueCapacity(final int queueCapacity) {
+            if (queueCapacity < 1) throw new IllegalArgumentException("Queue capacity must be positive.");
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        @NotNull
+        public Builder keepAlive(final boolean keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        @NotNull
+        public Builder idleTimeout(final int idleTimeout) {
+            if (idleTimeout < 1) throw new IllegalArgumentException("Idle timeout must be positive.");
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        @NotNull
+        public Builder maxRequestsPerConnection(final int maxRequestsPerConnection) {
+            if (maxRequestsPerConnection < 1)
+                throw new IllegalArgumentException("Maximum requests per connection must be positive.");
+            this.maxRequestsPerConnection = maxRequestsPerConnection;
+            return this;
+        }
+
+        @NotNull
+        public Builder maxPipelinedRequests(final int maxPipelinedRequests) {
+            if (maxPipelinedRequests < 1)
+                throw new IllegalArgumentException("Maximum pipelined requests must be positive.");
+            this.maxPipelinedRequests = maxPipelinedRequests;
+            return this;
+        }
+
+        @NotNull
+        public Builder compressionThreshold(final int compressionThreshold) {
+            if (compressionThreshold < 0) throw new IllegalArgumentException("Compression threshold must not be negative.");
+            this.compressionThreshold = compressionThreshold;
+            return this;
+        }
+
+        @NotNull
+        public Builder streamChunkSize(final int streamChunkSize) {
+            if (streamChunkSize < 1) throw new IllegalArgumentException("Stream chunk size must be positive.");
+            this.streamChunkSize = streamChunkSize;
+            return this;
+        }
+
+        @NotNull
+        public Builder maxFrameLength(final int maxFrameLength) {
+            if (maxFrameLength < 1) throw new IllegalArgumentException("Maximum frame length must be positive.");
+            this.maxFrameLength = maxFrameLength;
+            return this;
+        }
+
+        @Override
+        @NotNull
+        public Server build() {
+            return new Server(this);
+        }
     }
 }
@@ -0,0 +1,93 @@
+package vn.edu.uit.ontologymanager;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class OntologyManagerConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private static final int ROUNDS = 50;
+
+    // Fewer reasoners than threads, so expression queries wait for each other.
+    private static final int REASONERS = 2;
+
+    private static final List<String> MESSAGES = Arrays.asList(
+            "{\"Type\": \"GetRelations\"}",
+            "{\"Type\": \"GetAttributes\"}",
+            "{\"Type\": \"GetIndividuals\", \"Data\": {\"Limit\": 20, \"Offset\": 40}}",
+            "{\"Type\": \"GetClass\", \"Data\": {\"Class\": \"Benh\"}}",
+            "{\"Type\": \"GetSuperClasses\", \"Data\": {\"Class\": \"DoAm\", \"GetSuperClassType\": \"GetDirect\"}}",
+            "{\"Type\": \"GetSubClasses\", \"Data\": {\"Class\": \"TacNhanGayHai\", \"GetSubClassType\": \"GetAll\"}}",
+            "{\"Type\": \"IsSubClass\", \"Data\": {\"Class\": \"Oc\", \"SuperClass\": \"TacNhanGayHai\"}}",
+            "{\"Type\": \"GetClassIndividuals\", \"Data\": {\"Class\": \"Benh\", \"GetIndividualType\": \"GetDirect\"}}",
+            "{\"Type\": \"GetRelationValues\", \"Data\": {\"Individual\": \"Actara_25WG\"}}",
+            "{\"Type\": \"GetRelationValue\", \"Data\": {\"Individual\": \"Actara_25WG\", \"Relation\": \"triBenh\"}}",
+            "{\"Type\": \"GetAttributeValuesByAttributeName\", \"Data\": {\"Individual\": \"Actara_25WG\", \"Attribute\": \"article\"}}",
+            "{\"Type\": \"GetComment\", \"Data\": {\"Object\": \"benhSuDungThuoc\"}}",
+            "{\"Type\": \"SearchEntities\", \"Data\": {\"Query\": \"sau cuon la\", \"Limit\": 10}}",
+            "{\"Type\": \"GetExpressionSubClasses\", \"Data\": {\"Expression\": \"Benh or Sau\", \"GetSubClassType\": \"GetAll\"}}",
+            "{\"Type\": \"Batch\", \"Data\": {\"Requests\": ["
+                    + "{\"Id\": \"1\", \"Type\": \"GetIndividualClasses\", \"Data\": {\"Individual\": \"Actara_25WG\", \"GetClassType\": \"GetAll\"}}, "
+                    + "{\"Id\": \"2\", \"Type\": \"GetAttributeValues\", \"Data\": {\"Individual\": \"Actara_25WG\"}}, "
+                    + "{\"Id\": \"3\", \"Type\": \"GetRelationValue\", \"Data\": {\"Individual\": \"Actara_25WG\", \"Relation\": \"triBenh\", \"Inverse\": false}}]}}");
+
+    private static OntologyManager manager;
+
+    private static List<String> expected;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        final File file = Paths.get(OntologyManagerConcurrencyTest.class.getClassLoader().getResource("rice.owl").toURI()).toFile();
+        manager = new OntologyManager(file, null, new TaxonomyReasonerFactory(), REASONERS, false);
+
+        expected = new ArrayList<>();
+        for (final String message : MESSAGES) expected.add(manager.process(message));
+    }
+
+    @Test
+    public void testAnswers() {
+        for (final String response : expected) assertTrue(response, response.startsWith("{\"Status\":\"Success\""));
+    }
+
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; ++thread) {
+                final int offset = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // Threads walk the messages from different offsets, so different request types overlap.
+                    for (int round = 0; round < ROUNDS; ++round)
+                        for (int index = 0; index < MESSAGES.size(); ++index) {
+                            final int message = (index + offset) % MESSAGES.size();
+                            assertEquals(expected.get(message), manager.process(MESSAGES.get(message)));
+                        }
+
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (final Future<?> future : futures) future.get(2, TimeUnit.MINUTES);
+
+            final String stats = manager.process("{\"Type\": \"GetReasonerPoolStats\"}");
+            assertTrue(stats, stats.contains("\"CreatedReasoners\":" + REASONERS));
+            assertTrue(stats, stats.contains("\"IdleReasoners\":" + REASONERS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package vn.edu.uit.ontologymanager;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.HermiT.Configuration;
+import org.semanticweb.HermiT.ReasonerFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerConfiguration;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class OntologyManagerWriteTest {
+
+    private static final int READERS = 4;
+
+    private static final int WRITES = 10;
+
+    // Writes are saved to the ontology file, so each test writes to a copy of its own.
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "rice.owl");
+        Files.copy(Paths.get(OntologyManagerWriteTest.class.getClassLoader().getResource("rice.owl").toURI()), file.toPath());
+    }
+
+    @Test
+    public void testAddIndividual() throws Exception {
+        final OntologyManager manager = createManager(new TaxonomyReasonerFactory());
+        assertStatus("Fail", manager, "{\"Type\": \"GetIndividual\", \"Data\": {\"Individual\": \"GiongMoi\"}}");
+
+        assertStatus("Success", manager, "{\"Type\": \"AddIndividual\", \"Data\": "
+                + "{\"Individual\": \"GiongMoi\", \"Class\": \"Benh\", \"Label\": \"Giống mới\"}}");
+
+        assertStatus("Success", manager, "{\"Type\": \"GetIndividual\", \"Data\": {\"Individual\": \"GiongMoi\"}}");
+        assertTrue(getIds(getData(manager, "{\"Type\": \"GetClassIndividuals\", \"Data\": "
+                + "{\"Class\": \"Benh\", \"GetIndividualType\": \"GetDirect\"}}"), "ClassIndividuals").contains("GiongMoi"));
+
+        // Expressions are answered by pooled reasoners, which take in the change too.
+        assertTrue(getIds(getData(manager, "{\"Type\": \"GetExpressionIndividuals\", \"Data\": "
+                + "{\"Expression\": \"Benh\", \"GetIndividualType\": \"GetAll\"}}"), "Individuals").contains("GiongMoi"));
+    }
+
+    @Test
+    public void testAddIndividualFail() throws Exception {
+        final OntologyManager manager = createManager(new TaxonomyReasonerFactory());
+
+        assertMessage("Individual name is empty.", manager,
+                "{\"Type\": \"AddIndividual\", \"Data\": {\"Individual\": \"\"}}");
+        assertMessage("Individual \"Actara_25WG\" already exists.", manager,
+                "{\"Type\": \"AddIndividual\", \"Data\": {\"Individual\": \"Actara_25WG\"}}");
+        assertMessage("Class \"KhongCo\" not found.", manager,
+                "{\"Type\": \"AddIndividual\", \"Data\": {\"Individual\": \"GiongMoi\", \"Class\": \"KhongCo\"}}");
+        assertStatus("Fail", manager, "{\"Type\": \"GetIndividual\", \"Data\": {\"Individual\": \"GiongMoi\"}}");
+    }
+
+    @Test
+    public void testAddClassAssertion() throws Exception {
+        final OntologyManager manager = createManager(new TaxonomyReasonerFactory());
+        final String classes = "{\"Type\": \"GetIndividualClasses\", \"Data\": {\"Individual\": \"GiongMoi\", \"GetClassType\": \"GetAll\"}}";
+        assertStatus("Success", manager, "{\"Type\": \"AddIndividual\", \"Data\": {\"Individual\": \"GiongMoi\"}}");
+        assertStatus("Fail", manager, classes);
+
+        assertStatus("Success", manager, "{\"Type\": \"AddClassAssertion\", \"Data\": {\"Individual\": \"GiongMoi\", \"Class\": \"Benh\"}}");
+        assertTrue(getIds(getData(manager, classes), "IndividualClasses").contains("Benh"));
+        assertTrue(getIds(getData(manager, "{\"Type\": \"GetClassIndividuals\", \"Data\": "
+                + "{\"Class\": \"Benh\", \"GetIndividualType\": \"GetDirect\"}}"), "ClassIndividuals").contains("GiongMoi"));
+
+        assertMessage("Individual \"KhongCo\" not found.", manager,
+                "{\"Type\": \"AddClassAssertion\", \"Data\": {\"Individual\": \"KhongCo\", \"Class\": \"Benh\"}}");
+        assertMessage("Class \"KhongCo\" not found.", manager,
+                "{\"Type\": \"AddClassAssertion\", \"Data\": {\"Individual\": \"Actara_25WG\", \"Class\": \"KhongCo\"}}");
+    }
+
+    @Test
+    public void testSetAttributeValue() throws Exception {
+        final OntologyManager manager = createManager(new TaxonomyReasonerFactory());
+        final String values = "{\"Type\": \"GetAttributeValuesByAttributeName\", \"Data\": {\"Individual\": \"Actara_25WG\", \"Attribute\": \"denNgay\"}}";
+
+        assertStatus("Success", manager, "{\"Type\": \"SetAttributeValue\", \"Data\": "
+                + "{\"Individual\": \"Actara_25WG\", \"Attribute\": \"denNgay\", \"Value\": \"12\"}}");
+        assertEquals("[\"12\"]", getData(manager, values).get("AttributeValues").toString());
+
+        // A new value replaces the old one, and no value removes it.
+        assertStatus("Success", manager, "{\"Type\": \"SetAttributeValue\", \"Data\": "
+                + "{\"Individual\": \"Actara_25WG\", \"Attribute\": \"denNgay\", \"Value\": \"15\"}}");
+        assertEquals("[\"15\"]", getData(manager, values).get("AttributeValues").toString());
+        assertStatus("Success", manager, "{\"Type\": \"SetAttributeValue\", \"Data\": "
+                + "{\"Individual\": \"Actara_25WG\", \"Attribute\": \"denNgay\"}}");
+        assertStatus("Fail", manager, values);
+
+        assertStatus("Success", manager, "{\"Type\": \"SetAttributeValue\", \"Data\": "
+                + "{\"Individual\": \"Actara_25WG\", \"Attribute\": \"membershipFunction\", \"Value\": \"trapmf\"}}");
+    }
+
+    @Test
+    public void testSetAttributeValueFail() throws Exception {
+        final OntologyManager manager = createManager(new TaxonomyReasonerFactory());
+
+        assertMessage("Individual \"KhongCo\" not found.", manager, "{\"Type\": \"SetAttributeValue\", \"Data\": "
+                + "{\"Individual\": \"KhongCo\", \"Attribute\": \"denNgay\", \"Value\": \"12\"}}");
+        assertMessage("Attribute \"khongCo\" not found.", manager, "{\"Type\": \"SetAttributeValue\", \"Data\": "
+                + "{\"Individual\": \"Actara_25WG\", \"Attribute\": \"khongCo\", \"Value\": \"12\"}}");
+        assertMessage("Value \"muoi hai\" is not in the range of \"denNgay\".", manager, "{\"Type\": \"SetAttributeValue\", \"Data\": "
+                + "{\"Individual\": \"Actara_25WG\", \"Attribute\": \"denNgay\", \"Value\": \"muoi hai\"}}");
+        assertMessage("Value \"khongCo\" is not in the range of \"membershipFunction\".", manager, "{\"Type\": \"SetAttributeValue\", \"Data\": "
+                + "{\"Individual\": \"Actara_25WG\", \"Attribute\": \"membershipFunction\", \"Value\": \"khongCo\"}}");
+    }
+
+    @Test
+    public void testAddRelationValue() throws Exception {
+        final OntologyManager manager = createManager(new TaxonomyReasonerFactory());
+        final String values = "{\"Type\": \"GetRelationValue\", \"Data\": {\"Individual\": \"Actara_25WG\", \"Relation\": \"triBenh\"}}";
+        assertFalse(getIds(getData(manager, values), "RelationValue").contains("BenhDaoOn"));
+
+        assertStatus("Success", manager, "{\"Type\": \"AddRelationValue\", \"Data\": "
+                + "{\"Individual\": \"Actara_25WG\", \"Relation\": \"triBenh\", \"Value\": \"BenhDaoOn\"}}");
+        assertTrue(getIds(getData(manager, values), "RelationValue").contains("BenhDaoOn"));
+
+        assertMessage("Individual \"KhongCo\" not found.", manager, "{\"Type\": \"AddRelationValue\", \"Data\": "
+                + "{\"Individual\": \"KhongCo\", \"Relation\": \"triBenh\", \"Value\": \"BenhDaoOn\"}}");
+        assertMessage("Relation \"khongCo\" not found.", manager, "{\"Type\": \"AddRelationValue\", \"Data\": "
+                + "{\"Individual\": \"Actara_25WG\", \"Relation\": \"khongCo\", \"Value\": \"BenhDaoOn\"}}");
+        assertMessage("Individual \"KhongCo\" not found.", manager, "{\"Type\": \"AddRelationValue\", \"Data\": "
+                + "{\"Individual\": \"Actara_25WG\", \"Relation\": \"triBenh\", \"Value\": \"KhongCo\"}}");
+    }
+
+    @Test
+    public void testPublication() throws Exception {
+        final OntologyManager manager = createManager(new TaxonomyReasonerFactory());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(READERS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            final CountDownLatch done = new CountDownLatch(1);
+            for (int thread = 0; thread < READERS; ++thread)
+                futures.add(executor.submit(() -> {
+                    // A batch is answered from one snapshot, so both answers see the same writes.
+                    int seen = 0;
+                    while (done.getCount() > 0) {
+                        final JsonObject responses = getData(manager, "{\"Type\": \"Batch\", \"Data\": {\"Requests\": ["
+                                + "{\"Id\": \"1\", \"Type\": \"GetIndividuals\", \"Data\": {\"Offset\": 0}}, "
+                                + "{\"Id\": \"2\", \"Type\": \"GetClassIndividuals\", \"Data\": {\"Class\": \"Benh\", \"GetIndividualType\": \"GetDirect\"}}]}}");
+                        final Set<String> all = new HashSet<>(getIds(getBatchData(responses, "1"), "Individuals"));
+                        final Set<String> direct = new HashSet<>(getIds(getBatchData(responses, "2"), "ClassIndividuals"));
+
+                        int written = 0;
+                        for (int write = 0; write < WRITES; ++write) {
+                            final String name = "GiongMoi" + write;
+                            assertEquals(name, all.contains(name), direct.contains(name));
+                            if (all.contains(name)) ++written;
+                        }
+                        assertTrue(written >= seen);
+                        seen = written;
+                    }
+
+                    return null;
+                }));
+
+            for (int write = 0; write < WRITES; ++write)
+                assertStatus("Success", manager, "{\"Type\": \"AddIndividual\", \"Data\": "
+                        + "{\"Individual\": \"GiongMoi" + write + "\", \"Class\": \"Benh\"}}");
+            done.countDown();
+
+            for (final Future<?> future : futures) future.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRollBack() throws Exception {
+        final FailingReasonerFactory reasonerFactory = new FailingReasonerFactory();
+        final OntologyManager manager = createManager(reasonerFactory);
+        final String classIndividuals = "{\"Type\": \"GetClassIndividuals\", \"Data\": {\"Class\": \"Benh\", \"GetIndividualType\": \"GetDirect\"}}";
+        final String expressionIndividuals = "{\"Type\": \"GetExpressionIndividuals\", \"Data\": {\"Expression\": \"Benh\", \"GetIndividualType\": \"GetAll\"}}";
+        final String before = manager.process(classIndividuals);
+
+        reasonerFactory.failing.set(true);
+        assertStatus("Error", manager, "{\"Type\": \"AddIndividual\", \"Data\": {\"Individual\": \"GiongLoi\", \"Class\": \"Benh\"}}");
+        assertEquals(before, manager.process(classIndividuals));
+
+        // The next write rebuilds the snapshot from the ontology, which must not have the failed change.
+        assertStatus("Success", manager, "{\"Type\": \"AddIndividual\", \"Data\": {\"Individual\": \"GiongMoi\", \"Class\": \"Benh\"}}");
+        final List<String> individuals = getIds(getData(manager, classIndividuals), "ClassIndividuals");
+        assertTrue(individuals.contains("GiongMoi"));
+        assertFalse(individuals.contains("GiongLoi"));
+        assertFalse(getIds(getData(manager, expressionIndividuals), "Individuals").contains("GiongLoi"));
+        assertStatus("Fail", manager, "{\"Type\": \"GetIndividual\", \"Data\": {\"Individual\": \"GiongLoi\"}}");
+    }
+
+    // A restarted manager reads the write back from the file, and from a snapshot file saved with it.
+    @Test
+    public void testWriteIsSaved() throws Exception {
+        final File snapshotFile = new File(folder.getRoot(), "rice.snapshot");
+        final OntologyManager manager = new OntologyManager(file, snapshotFile, new TaxonomyReasonerFactory(), 1, false);
+        assertStatus("Success", manager, "{\"Type\": \"AddIndividual\", \"Data\": {\"Individual\": \"GiongMoi\", \"Class\": \"Benh\"}}");
+        assertEquals(SnapshotFile.hash(file, ""), manager.getFileHash());
+
+        // The snapshot file matches the saved file, so the restart loads it instead of reasoning.
+        assertNotNull(SnapshotFile.read(snapshotFile, SnapshotFile.hash(file, TaxonomyReasonerFactory.class.getName())));
+
+        final String classIndividuals = "{\"Type\": \"GetClassIndividuals\", \"Data\": {\"Class\": \"Benh\", \"GetIndividualType\": \"GetDirect\"}}";
+
+        for (final File restartSnapshotFile : new File[]{null, snapshotFile}) {
+            final OntologyManager restarted = new OntologyManager(file, restartSnapshotFile, new TaxonomyReasonerFactory(), 1, false);
+            assertEquals(process(manager, classIndividuals), process(restarted, classIndividuals));
+            assertTrue(getIds(getData(restarted, classIndividuals), "ClassIndividuals").contains("GiongMoi"));
+        }
+    }
+
+    // A file edited since it was loaded is not overwritten, and the write is rolled back.
+    @Test
+    public void testFileChangedSinceLoad() throws Exception {
+        final OntologyManager manager = createManager(new TaxonomyReasonerFactory());
+        manager.process("{\"Type\": \"GetIndividuals\"}");
+        Files.write(file.toPath(), new byte[]{'\n'}, StandardOpenOption.APPEND);
+        final byte[] edited = Files.readAllBytes(file.toPath());
+
+        assertStatus("Error", manager, "{\"Type\": \"AddIndividual\", \"Data\": {\"Individual\": \"GiongMoi\"}}");
+        assertStatus("Fail", manager, "{\"Type\": \"GetIndividual\", \"Data\": {\"Individual\": \"GiongMoi\"}}");
+        assertArrayEquals(edited, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void testExpressionDuringWrite() throws Exception {
+        final HeldReasonerFactory reasonerFactory = new HeldReasonerFactory();
+        final OntologyManager manager = new OntologyManager(file, null, reasonerFactory, 1, true);
+        final String expressionIndividuals = "{\"Type\": \"GetExpressionIndividuals\", \"Data\": {\"Expression\": \"Benh\", \"GetIndividualType\": \"GetAll\"}}";
+        final Set<String> before = new HashSet<>(getIds(getData(manager, expressionIndividuals), "Individuals"));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // The write stops while its reasoner precomputes inferences, with the ontology already changed.
+            reasonerFactory.holding.set(true);
+            final Future<JsonObject> write = executor.submit(() -> process(manager,
+                    "{\"Type\": \"AddIndividual\", \"Data\": {\"Individual\": \"GiongMoi\", \"Class\": \"Benh\"}}"));
+            assertTrue(reasonerFactory.held.await(60, TimeUnit.SECONDS));
+
+            // Expressions are answered by the pooled reasoner as it was before the write, without waiting for it.
+            final Future<JsonObject> query = executor.submit(() -> getData(manager, expressionIndividuals));
+            assertEquals(before, new HashSet<>(getIds(query.get(60, TimeUnit.SECONDS), "Individuals")));
+            assertFalse(write.isDone());
+
+            reasonerFactory.released.countDown();
+            assertEquals("Success", write.get(60, TimeUnit.SECONDS).get("Status").getAsString());
+            assertTrue(getIds(getData(manager, expressionIndividuals), "Individuals").contains("GiongMoi"));
+        } finally {
+            reasonerFactory.released.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private OntologyManager createManager(final TaxonomyReasonerFactory reasonerFactory) throws Exception {
+        return new OntologyManager(file, null, reasonerFactory, 2, false);
+    }
+
+    private static JsonObject process(final OntologyManager manager, final String message) {
+        return new JsonParser().parse(manager.process(message)).getAsJsonObject();
+    }
+
+    private static void assertStatus(final String status, final OntologyManager manager, final String message) {
+        final JsonObject response = process(manager, message);
+        assertEquals(response.toString(), status, response.get("Status").getAsString());
+    }
+
+    private static void assertMessage(final String expected, final OntologyManager manager, final String message) {
+        final JsonObject response = process(manager, message);
+        assertEquals(response.toString(), "Fail", response.get("Status").getAsString());
+        assertEquals(expected, response.get("Message").getAsString());
+    }
+
+    private static JsonObject getData(final OntologyManager manager, final String message) {
+        final JsonObject response = process(manager, message);
+        assertEquals(response.toString(), "Success", response.get("Status").getAsString());
+
+        return response.getAsJsonObject("Data");
+    }
+
+    private static JsonObject getBatchData(final JsonObject data, final String id) {
+        for (final JsonElement element : data.getAsJsonArray("Responses")) {
+            final JsonObject response = element.getAsJsonObject();
+            if (response.get("Id").getAsString().equals(id)) return response.getAsJsonObject("Data");
+        }
+
+        throw new AssertionError("No response " + id + " in " + data);
+    }
+
+    private static List<String> getIds(final JsonObject data, final String key) {
+        final List<String> ids = new ArrayList<>();
+        for (final JsonElement entity : data.getAsJsonArray(key)) ids.add(entity.getAsJsonObject().get("Id").getAsString());
+
+        return ids;
+    }
+
+    // Runs the hook before the reasoner precomputes inferences.
+    private static OWLReasoner interceptPrecompute(final OWLReasoner reasoner, final Runnable hook) {
+        return (OWLReasoner) Proxy.newProxyInstance(OWLReasoner.class.getClassLoader(), new Class<?>[]{OWLReasoner.class},
+                (proxy, method, arguments) -> {
+                    if (method.getName().equals("precomputeInferences")) hook.run();
+                    try {
+                        return method.invoke(reasoner, arguments);
+                    } catch (final InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    // Reasoners that fail to precompute inferences once after failing is set, like a reasoner running out of memory.
+    private static final class FailingReasonerFactory extends TaxonomyReasonerFactory {
+
+        private final AtomicBoolean failing = new AtomicBoolean();
+
+        @Override
+        public OWLReasoner createReasoner(final OWLOntology ontology, final OWLReasonerConfiguration config) {
+            return interceptPrecompute(super.createReasoner(ontology, config), () -> {
+                if (failing.getAndSet(false)) throw new IllegalStateException("Reasoner failed.");
+            });
+        }
+    }
+
+    // HermiT reasoners, the first of which to precompute inferences after holding is set waits until it is released.
+    private static final class HeldReasonerFactory extends ReasonerFactory {
+
+        private final AtomicBoolean holding = new AtomicBoolean();
+
+        private final CountDownLatch held = new CountDownLatch(1);
+
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        protected OWLReasoner createHermiTOWLReasoner(final Configuration configuration, final OWLOntology ontology) {
+            return interceptPrecompute(super.createHermiTOWLReasoner(configuration, ontology), () -> {
+                if (!holding.getAndSet(false)) return;
+
+                held.countDown();
+                try {
+                    released.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+}
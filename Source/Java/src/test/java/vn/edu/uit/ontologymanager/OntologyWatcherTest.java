@@ -0,0 +1,198 @@
+package vn.edu.uit.ontologymanager;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+import vn.edu.uit.server.Request;
+import vn.edu.uit.server.Response;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class OntologyWatcherTest {
+
+    private static final int QUIET_PERIOD = 100;
+
+    private static final String NEW_INDIVIDUAL = "{\"Type\": \"GetClassIndividuals\", \"Data\": "
+            + "{\"Class\": \"Benh\", \"GetIndividualType\": \"GetDirect\"}}";
+
+    private static final String EXPRESSION = "{\"Type\": \"GetExpressionIndividuals\", \"Data\": "
+            + "{\"Expression\": \"Benh\", \"GetIndividualType\": \"GetAll\"}}";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "rice.owl");
+        Files.copy(Paths.get(OntologyWatcherTest.class.getClassLoader().getResource("rice.owl").toURI()), file.toPath());
+    }
+
+    // While the new manager loads, requests are answered by the old one, which is disposed of once it is replaced.
+    @Test
+    public void testRequestDuringReload() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch loaded = new CountDownLatch(1);
+        try (final OntologyWatcher watcher = new OntologyWatcher(file, () -> {
+            if (loads.incrementAndGet() > 1) {
+                loading.countDown();
+                await(loaded);
+            }
+            return createManager();
+        }, QUIET_PERIOD)) {
+            watcher.start();
+            final OntologyManager oldManager = watcher.get();
+            assertFalse(hasNewIndividual(getData(oldManager, EXPRESSION)));
+            assertEquals(1, getCreatedReasoners(oldManager));
+
+            addIndividual();
+            assertTrue(loading.await(30, TimeUnit.SECONDS));
+            assertSame(oldManager, watcher.get());
+            assertFalse(hasNewIndividual(getData(watcher.get(), NEW_INDIVIDUAL)));
+            assertFalse(hasNewIndividual(getData(watcher.get(), EXPRESSION)));
+
+            loaded.countDown();
+            final OntologyManager newManager = awaitReload(watcher, oldManager);
+            assertTrue(hasNewIndividual(getData(newManager, NEW_INDIVIDUAL)));
+            assertTrue(hasNewIndividual(getData(newManager, EXPRESSION)));
+            awaitDisposed(oldManager);
+        } finally {
+            loaded.countDown();
+        }
+    }
+
+    // A request still running on the old manager keeps its reasoners until it is done.
+    @Test
+    public void testDisposeAfterRequests() throws Exception {
+        try (final OntologyWatcher watcher = new OntologyWatcher(file, this::createManager, QUIET_PERIOD)) {
+            watcher.start();
+            final OntologyManager oldManager = watcher.get();
+            getData(oldManager, EXPRESSION);
+
+            final CountDownLatch streaming = new CountDownLatch(1);
+            final CountDownLatch released = new CountDownLatch(1);
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                final Request request = new Gson().fromJson("{\"Type\": \"GetIndividuals\"}", Request.class);
+                final Future<Response> stream = executor.submit(() -> oldManager.stream(request, 16, chunk -> {
+                    streaming.countDown();
+                    try {
+                        released.await();
+                    } catch (final InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                }));
+                assertTrue(streaming.await(30, TimeUnit.SECONDS));
+
+                addIndividual();
+                awaitReload(watcher, oldManager);
+                assertEquals(1, getCreatedReasoners(oldManager));
+
+                released.countDown();
+                assertEquals("Success", new Gson().toJsonTree(stream.get(30, TimeUnit.SECONDS)).getAsJsonObject().get("Status").getAsString());
+                awaitDisposed(oldManager);
+
+                // A request that reaches the disposed manager is still answered.
+                assertFalse(hasNewIndividual(getData(oldManager, EXPRESSION)));
+                assertEquals(0, getCreatedReasoners(oldManager));
+            } finally {
+                released.countDown();
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    // A write saves the file, which the watcher does not load again.
+    @Test
+    public void testWriteIsNotReloaded() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        try (final OntologyWatcher watcher = new OntologyWatcher(file, () -> {
+            loads.incrementAndGet();
+            return createManager();
+        }, QUIET_PERIOD)) {
+            watcher.start();
+            final OntologyManager manager = watcher.get();
+            final JsonObject response = new JsonParser().parse(manager.process("{\"Type\": \"AddIndividual\", \"Data\": "
+                    + "{\"Individual\": \"GiongMoi\", \"Class\": \"Benh\"}}")).getAsJsonObject();
+            assertEquals(response.toString(), "Success", response.get("Status").getAsString());
+
+            Thread.sleep(10 * QUIET_PERIOD);
+            assertSame(manager, watcher.get());
+            assertEquals(1, loads.get());
+        }
+    }
+
+    private OntologyManager createManager() throws OWLOntologyCreationException {
+        return new OntologyManager(file, null, new TaxonomyReasonerFactory(), 1, false);
+    }
+
+    // The file is changed the way an editor would, by saving the whole ontology again.
+    private void addIndividual() throws Exception {
+        final OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        final OWLOntology ontology = manager.loadOntologyFromOntologyDocument(file);
+        final OWLDataFactory factory = manager.getOWLDataFactory();
+        final String prefix = ontology.getOntologyID().getOntologyIRI().get() + "#";
+
+        final OWLNamedIndividual individual = factory.getOWLNamedIndividual(IRI.create(prefix + "GiongMoi"));
+        manager.addAxiom(ontology, factory.getOWLDeclarationAxiom(individual));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(factory.getOWLClass(IRI.create(prefix + "Benh")), individual));
+        manager.saveOntology(ontology);
+    }
+
+    private static OntologyManager awaitReload(final OntologyWatcher watcher, final OntologyManager oldManager) throws InterruptedException {
+        for (int attempt = 0; attempt < 600; ++attempt) {
+            if (watcher.get() != oldManager) return watcher.get();
+            Thread.sleep(50);
+        }
+        fail("Ontology is not reloaded.");
+
+        return oldManager;
+    }
+
+    // The old manager is closed right after it is replaced, on the watcher thread.
+    private static void awaitDisposed(final OntologyManager manager) throws InterruptedException {
+        for (int attempt = 0; attempt < 200; ++attempt) {
+            if (getCreatedReasoners(manager) == 0) return;
+            Thread.sleep(50);
+        }
+        fail("Ontology manager is not disposed of.");
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int getCreatedReasoners(final OntologyManager manager) {
+        return getData(manager, "{\"Type\": \"GetReasonerPoolStats\"}").get("CreatedReasoners").getAsInt();
+    }
+
+    private static JsonObject getData(final OntologyManager manager, final String message) {
+        final JsonObject response = new JsonParser().parse(manager.process(message)).getAsJsonObject();
+        assertEquals(response.toString(), "Success", response.get("Status").getAsString());
+
+        return response.getAsJsonObject("Data");
+    }
+
+    private static boolean hasNewIndividual(final JsonObject data) {
+        return data.toString().contains("\"GiongMoi\"");
+    }
+}
@@ -0,0 +1,133 @@
+package vn.edu.uit.ontologymanager;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PagingTest {
+
+    private static final int LIMIT = 7;
+
+    private static OntologyManager manager;
+
+    // Every individual id, in paging order.
+    private static List<String> individuals;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        final File file = Paths.get(PagingTest.class.getClassLoader().getResource("rice.owl").toURI()).toFile();
+        manager = new OntologyManager(file, null, new TaxonomyReasonerFactory(), 1, false);
+
+        final JsonObject data = process("{\"Type\": \"GetIndividuals\", \"Data\": {\"Offset\": 0}}");
+        individuals = getIds(data, "Individuals");
+        assertEquals(data.get("Total").getAsInt(), individuals.size());
+        assertFalse(data.has("NextCursor"));
+    }
+
+    @Test
+    public void testUnpaged() {
+        final JsonObject data = process("{\"Type\": \"GetIndividuals\"}");
+        assertEquals(new HashSet<>(individuals), new HashSet<>(getIds(data, "Individuals")));
+        assertFalse(data.has("Total"));
+    }
+
+    @Test
+    public void testOrder() {
+        for (int index = 1; index < individuals.size(); ++index)
+            assertTrue(individuals.get(index - 1).compareTo(individuals.get(index)) < 0);
+    }
+
+    @Test
+    public void testLimitOffset() {
+        final JsonObject data = process("{\"Type\": \"GetIndividuals\", \"Data\": {\"Limit\": " + LIMIT + ", \"Offset\": 10}}");
+        assertEquals(individuals.subList(10, 10 + LIMIT), getIds(data, "Individuals"));
+        assertEquals(individuals.size(), data.get("Total").getAsInt());
+        assertTrue(data.has("NextCursor"));
+    }
+
+    @Test
+    public void testOffsetPastEnd() {
+        final JsonObject data = process("{\"Type\": \"GetIndividuals\", \"Data\": {\"Limit\": " + LIMIT
+                + ", \"Offset\": " + (individuals.size() + 5) + "}}");
+        assertEquals(0, getIds(data, "Individuals").size());
+        assertFalse(data.has("NextCursor"));
+    }
+
+    @Test
+    public void testCursor() {
+        // Following the cursors visits every individual once, in order, and the last page has no cursor.
+        final List<String> visited = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            final JsonObject data = process("{\"Type\": \"GetIndividuals\", \"Data\": {\"Limit\": " + LIMIT
+                    + (cursor == null ? "" : ", \"Cursor\": \"" + cursor + "\"") + "}}");
+            final List<String> page = getIds(data, "Individuals");
+            assertTrue(page.size() <= LIMIT);
+            visited.addAll(page);
+            cursor = data.has("NextCursor") ? data.get("NextCursor").getAsString() : null;
+            ++pages;
+        } while (cursor != null);
+
+        assertEquals(individuals, visited);
+        assertEquals((individuals.size() + LIMIT - 1) / LIMIT, pages);
+    }
+
+    @Test
+    public void testCursorWithOffset() {
+        final JsonObject first = process("{\"Type\": \"GetIndividuals\", \"Data\": {\"Limit\": " + LIMIT + "}}");
+        final String cursor = first.get("NextCursor").getAsString();
+
+        final JsonObject data = process("{\"Type\": \"GetIndividuals\", \"Data\": {\"Limit\": " + LIMIT
+                + ", \"Offset\": 3, \"Cursor\": \"" + cursor + "\"}}");
+        assertEquals(individuals.subList(LIMIT + 3, 2 * LIMIT + 3), getIds(data, "Individuals"));
+    }
+
+    @Test
+    public void testRelations() {
+        final List<String> relations = getIds(process("{\"Type\": \"GetRelations\", \"Data\": {\"Offset\": 0}}"), "Relations");
+        final Set<String> unpaged = new HashSet<>(getIds(process("{\"Type\": \"GetRelations\"}"), "Relations"));
+        assertEquals(unpaged, new HashSet<>(relations));
+
+        final JsonObject data = process("{\"Type\": \"GetRelations\", \"Data\": {\"Limit\": 2, \"Offset\": 1}}");
+        assertEquals(relations.subList(1, 3), getIds(data, "Relations"));
+    }
+
+    @Test
+    public void testInvalidPage() {
+        assertError("{\"Type\": \"GetIndividuals\", \"Data\": {\"Limit\": 0}}");
+        assertError("{\"Type\": \"GetIndividuals\", \"Data\": {\"Offset\": -1}}");
+    }
+
+    private static JsonObject process(final String message) {
+        final JsonObject response = new JsonParser().parse(manager.process(message)).getAsJsonObject();
+        assertEquals(response.toString(), "Success", response.get("Status").getAsString());
+
+        return response.getAsJsonObject("Data");
+    }
+
+    private static void assertError(final String message) {
+        final JsonObject response = new JsonParser().parse(manager.process(message)).getAsJsonObject();
+        assertEquals(response.toString(), "Error", response.get("Status").getAsString());
+    }
+
+    private static List<String> getIds(final JsonObject data, final String key) {
+        final List<String> ids = new ArrayList<>();
+        final JsonArray entities = data.getAsJsonArray(key);
+        for (final JsonElement entity : entities) ids.add(entity.getAsJsonObject().get("Id").getAsString());
+
+        return ids;
+    }
+}
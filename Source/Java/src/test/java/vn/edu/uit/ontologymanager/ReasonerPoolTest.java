@@ -0,0 +1,84 @@
+package vn.edu.uit.ontologymanager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.OWLParserException;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReasonerPoolTest {
+
+    private OWLOntology ontology;
+
+    private String prefix;
+
+    @Before
+    public void setUp() throws Exception {
+        final File file = Paths.get(ReasonerPoolTest.class.getClassLoader().getResource("rice.owl").toURI()).toFile();
+        ontology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(file);
+        prefix = ontology.getOntologyID().getOntologyIRI().get() + "#";
+    }
+
+    @Test
+    public void testParse() {
+        final ReasonerPool pool = new ReasonerPool(new TaxonomyReasonerFactory(), () -> ontology, 1);
+        final OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+
+        assertEquals(factory.getOWLClass(IRI.create(prefix + "Benh")), pool.parse("Benh"));
+        assertEquals(pool.parse("Benh or Sau"), pool.parse("Benh or Sau"));
+    }
+
+    @Test(expected = OWLParserException.class)
+    public void testParseUnknownName() {
+        new ReasonerPool(new TaxonomyReasonerFactory(), () -> ontology, 1).parse("KhongCo");
+    }
+
+    @Test
+    public void testParseAfterUpdate() {
+        final ReasonerPool pool = new ReasonerPool(new TaxonomyReasonerFactory(), () -> ontology, 1);
+        pool.parse("Benh");
+
+        final OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+        final OWLClass newClass = factory.getOWLClass(IRI.create(prefix + "LopMoi"));
+        ontology.getOWLOntologyManager().addAxiom(ontology, factory.getOWLDeclarationAxiom(newClass));
+        pool.update();
+
+        // The short forms are made again for the new generation, so they know the new class.
+        assertEquals(newClass, pool.parse("LopMoi"));
+    }
+
+    @Test
+    public void testWaiterAfterUpdate() throws Exception {
+        final ReasonerPool pool = new ReasonerPool(new TaxonomyReasonerFactory(), () -> ontology, 1);
+        final OWLReasoner reasoner = pool.checkout();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<OWLReasoner> waiter = executor.submit(pool::checkout);
+            Thread.sleep(200);
+            assertFalse(waiter.isDone());
+
+            // The released reasoner is outdated and is disposed of, so the waiter gets a new one.
+            pool.update();
+            pool.release(reasoner);
+            final OWLReasoner replacement = waiter.get(10, TimeUnit.SECONDS);
+            assertNotSame(reasoner, replacement);
+            assertEquals(1, pool.getCreatedReasoners());
+
+            pool.release(replacement);
+            assertEquals(1, pool.getIdleReasoners());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
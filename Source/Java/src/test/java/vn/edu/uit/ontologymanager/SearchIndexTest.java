@@ -0,0 +1,78 @@
+package vn.edu.uit.ontologymanager;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import java.io.File;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+import static vn.edu.uit.ontologymanager.model.EntityType.CLASS;
+import static vn.edu.uit.ontologymanager.model.EntityType.INDIVIDUAL;
+
+public class SearchIndexTest {
+
+    private static OntologySnapshot snapshot;
+
+    private static SearchIndex index;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        final File file = Paths.get(SearchIndexTest.class.getClassLoader().getResource("rice.owl").toURI()).toFile();
+        final OWLOntology ontology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(file);
+        final String prefix = ontology.getOntologyID().getOntologyIRI().get() + "#";
+
+        final OWLReasoner reasoner = new TaxonomyReasonerFactory().createReasoner(ontology);
+        reasoner.precomputeInferences();
+
+        snapshot = new HeapSnapshot.Builder(ontology, reasoner, prefix).build();
+        index = new SearchIndex(snapshot);
+    }
+
+    @Test
+    public void testAccents() {
+        final int[] plain = index.search("benh dao on", null);
+        assertTrue(plain.length > 0);
+        assertEquals("BenhDaoOn", getName(plain[0]));
+
+        assertArrayEquals(plain, index.search("Bệnh đạo ôn", null));
+        assertArrayEquals(plain, index.search("BỆNH  ĐẠO-ÔN", null));
+    }
+
+    @Test
+    public void testRanking() {
+        // A label with every syllable of the query comes before one that misses a syllable.
+        final int[] documents = index.search("sau cuon la nho", INDIVIDUAL);
+        assertEquals("SauCuonLaNho", getName(documents[0]));
+        assertEquals("SauCuonLaLon", getName(documents[1]));
+    }
+
+    @Test
+    public void testEntityType() {
+        for (final int document : index.search("benh", CLASS)) assertEquals(CLASS, index.getType(document));
+        for (final int document : index.search("benh", INDIVIDUAL)) assertEquals(INDIVIDUAL, index.getType(document));
+    }
+
+    @Test
+    public void testNotFound() {
+        assertEquals(0, index.search("xyzzy", null).length);
+        assertEquals(0, index.search(" - ", null).length);
+    }
+
+    private static String getName(final int document) {
+        final int id = index.getId(document);
+        switch (index.getType(document)) {
+            case CLASS:
+                return snapshot.getClasses().getName(id);
+            case RELATION:
+                return snapshot.getRelations().getName(id);
+            case ATTRIBUTE:
+                return snapshot.getAttributes().getName(id);
+            default:
+                return snapshot.getIndividuals().getName(id);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package vn.edu.uit.ontologymanager;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import vn.edu.uit.ontologymanager.OntologySnapshot.EntityTable;
+import vn.edu.uit.server.Request;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class SnapshotFileTest {
+
+    private static final String[] GET_TYPES = {"GetDirect", "GetAll"};
+
+    private static final Gson gson = new Gson();
+
+    private static File ontologyFile;
+
+    private static String hash;
+
+    private static HeapSnapshot heapSnapshot;
+
+    private static ReasonerPool reasonerPool;
+
+    private static ExecutorService batchExecutor;
+
+    // Queries about every entity, which between them read every part of a snapshot.
+    private static List<String> queries;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File snapshotFile;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        ontologyFile = Paths.get(SnapshotFileTest.class.getClassLoader().getResource("rice.owl").toURI()).toFile();
+        hash = SnapshotFile.hash(ontologyFile, TaxonomyReasonerFactory.class.getName());
+
+        final OWLOntology ontology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(ontologyFile);
+        final OWLReasoner reasoner = new TaxonomyReasonerFactory().createReasoner(ontology);
+        reasoner.precomputeInferences();
+        heapSnapshot = new HeapSnapshot.Builder(ontology, reasoner, ontology.getOntologyID().getOntologyIRI().get() + "#").build();
+        reasonerPool = new ReasonerPool(new TaxonomyReasonerFactory(), () -> ontology, 1);
+        batchExecutor = Executors.newSingleThreadExecutor();
+
+        queries = createQueries(heapSnapshot);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        batchExecutor.shutdownNow();
+    }
+
+    @Before
+    public void setUp() {
+        snapshotFile = new File(folder.getRoot(), "rice.snapshot");
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        SnapshotFile.write(snapshotFile, hash, heapSnapshot);
+        final OntologySnapshot mappedSnapshot = SnapshotFile.read(snapshotFile, hash);
+        assertTrue(mappedSnapshot instanceof MappedSnapshot);
+
+        final SnapshotReader heapReader = new SnapshotReader(gson, heapSnapshot, reasonerPool, batchExecutor);
+        final SnapshotReader mappedReader = new SnapshotReader(gson, mappedSnapshot, reasonerPool, batchExecutor);
+        for (final String query : queries) {
+            final Request request = gson.fromJson(query, Request.class);
+            assertEquals(query, gson.toJson(heapReader.process(request)), gson.toJson(mappedReader.process(request)));
+        }
+    }
+
+    @Test
+    public void testMissing() throws IOException {
+        assertNull(SnapshotFile.read(snapshotFile, hash));
+    }
+
+    // A snapshot of another ontology file, or of another reasoner, is ignored.
+    @Test
+    public void testStale() throws IOException {
+        SnapshotFile.write(snapshotFile, hash, heapSnapshot);
+        assertNull(SnapshotFile.read(snapshotFile, SnapshotFile.hash(ontologyFile, "")));
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        SnapshotFile.write(snapshotFile, hash, heapSnapshot);
+        final long length = snapshotFile.length();
+
+        truncate(length - 1);
+        assertReadFails();
+        truncate(length / 2);
+        assertReadFails();
+
+        // A file too short for its header is not a snapshot at all.
+        truncate(6);
+        assertNull(SnapshotFile.read(snapshotFile, hash));
+    }
+
+    @Test
+    public void testCorruptHeader() throws IOException {
+        SnapshotFile.write(snapshotFile, hash, heapSnapshot);
+        overwrite(0, 0);
+        assertNull(SnapshotFile.read(snapshotFile, hash));
+
+        // Another format version is read as no snapshot.
+        SnapshotFile.write(snapshotFile, hash, heapSnapshot);
+        overwrite(Integer.BYTES, -1);
+        assertNull(SnapshotFile.read(snapshotFile, hash));
+    }
+
+    @Test
+    public void testCorruptBlockLength() throws IOException {
+        SnapshotFile.write(snapshotFile, hash, heapSnapshot);
+        final long firstBlock = 3 * Integer.BYTES + hash.length();
+
+        overwrite(firstBlock, Integer.MAX_VALUE);
+        assertReadFails();
+        overwrite(firstBlock, -1);
+        assertReadFails();
+
+        // A block whose entries do not fit in it.
+        SnapshotFile.write(snapshotFile, hash, heapSnapshot);
+        overwrite(firstBlock + Integer.BYTES, Integer.MAX_VALUE);
+        assertReadFails();
+    }
+
+    // A snapshot file that cannot be used is replaced after reasoning, and the answers come from reasoning.
+    @Test
+    public void testFallback() throws Exception {
+        final OntologyManager reasoningManager = createManager(null);
+        final List<String> answers = new ArrayList<>();
+        for (final String query : queries) answers.add(reasoningManager.process(query));
+
+        final String staleHash = SnapshotFile.hash(ontologyFile, "");
+        final Runnable[] breaks = {
+                () -> truncate(snapshotFile.length() / 2),
+                () -> overwrite(0, 0),
+                () -> overwrite(3 * Integer.BYTES + hash.length(), Integer.MAX_VALUE),
+                () -> write(staleHash)
+        };
+        for (final Runnable breakSnapshot : breaks) {
+            SnapshotFile.write(snapshotFile, hash, heapSnapshot);
+            breakSnapshot.run();
+
+            final OntologyManager manager = createManager(snapshotFile);
+            assertNotNull(SnapshotFile.read(snapshotFile, hash));
+            for (int index = 0; index < queries.size(); ++index)
+                assertEquals(queries.get(index), answers.get(index), manager.process(queries.get(index)));
+        }
+    }
+
+    // The saved snapshot answers a restarted manager as reasoning did.
+    @Test
+    public void testRestart() throws Exception {
+        final OntologyManager reasoningManager = createManager(snapshotFile);
+        assertNotNull(SnapshotFile.read(snapshotFile, hash));
+
+        final OntologyManager restarted = createManager(snapshotFile);
+        for (final String query : queries) assertEquals(query, reasoningManager.process(query), restarted.process(query));
+    }
+
+    private OntologyManager createManager(final File snapshotFile) throws Exception {
+        return new OntologyManager(ontologyFile, snapshotFile, new TaxonomyReasonerFactory(), 1, false);
+    }
+
+    private void assertReadFails() {
+        try {
+            SnapshotFile.read(snapshotFile, hash);
+            fail("Broken snapshot is read.");
+        } catch (final IOException e) {
+            // The manager reasons instead.
+        }
+    }
+
+    private void truncate(final long length) {
+        try (final RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.setLength(length);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void overwrite(final long position, final int value) {
+        try (final RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.seek(position);
+            file.writeInt(value);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void write(final String hash) {
+        try {
+            SnapshotFile.write(snapshotFile, hash, heapSnapshot);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> createQueries(final OntologySnapshot snapshot) {
+        final List<String> queries = new ArrayList<>();
+        queries.add(query("GetIndividuals"));
+        queries.add(query("GetRelations"));
+        queries.add(query("GetAttributes"));
+        for (final String entityType : new String[]{"Class", "Relation", "Attribute", "Individual"})
+            queries.add(query("SearchEntities", "Query", "benh", "EntityType", entityType));
+
+        final EntityTable classes = snapshot.getClasses();
+        for (int classId = 0; classId < classes.size(); ++classId) {
+            final String name = classes.getName(classId);
+            queries.add(query("GetClass", "Class", name));
+            queries.add(query("GetDomainRelations", "Class", name));
+            queries.add(query("GetRangeRelations", "Class", name));
+            queries.add(query("GetClassAttributes", "Class", name));
+            queries.add(query("IsSubClass", "Class", name, "SuperClass", classes.getName(0)));
+            for (final String getType : GET_TYPES) {
+                queries.add(query("GetSuperClasses", "Class", name, "GetSuperClassType", getType));
+                queries.add(query("GetSubClasses", "Class", name, "GetSubClassType", getType));
+                queries.add(query("GetClassIndividuals", "Class", name, "GetIndividualType", getType));
+            }
+        }
+
+        final EntityTable relations = snapshot.getRelations();
+        for (int relationId = 0; relationId < relations.size(); ++relationId) {
+            final String name = relations.getName(relationId);
+            queries.add(query("GetRelation", "Relation", name));
+            queries.add(query("GetInverseRelation", "Relation", name));
+            queries.add(query("GetComment", "Object", name));
+            for (final String getType : GET_TYPES) {
+                queries.add(query("GetRelationDomains", "Relation", name, "GetDomainType", getType));
+                queries.add(query("GetRelationRanges", "Relation", name, "GetRangeType", getType));
+            }
+        }
+
+        final EntityTable attributes = snapshot.getAttributes();
+        for (int attributeId = 0; attributeId < attributes.size(); ++attributeId) {
+            final String name = attributes.getName(attributeId);
+            queries.add(query("GetAttribute", "Attribute", name));
+            queries.add(query("GetComment", "Object", name));
+            for (final String getType : GET_TYPES)
+                queries.add(query("GetAttributeDomains", "Attribute", name, "GetDomainType", getType));
+        }
+
+        final EntityTable individuals = snapshot.getIndividuals();
+        for (int individualId = 0; individualId < individuals.size(); ++individualId) {
+            final String name = individuals.getName(individualId);
+            queries.add(query("GetIndividual", "Individual", name));
+            queries.add(query("GetRelationValues", "Individual", name));
+            queries.add(query("GetAttributeValues", "Individual", name));
+            for (final String getType : GET_TYPES)
+                queries.add(query("GetIndividualClasses", "Individual", name, "GetClassType", getType));
+        }
+
+        return queries;
+    }
+
+    private static String query(final String type, final String... data) {
+        final JsonObject dataObject = new JsonObject();
+        for (int index = 0; index < data.length; index += 2) dataObject.addProperty(data[index], data[index + 1]);
+
+        final JsonObject query = new JsonObject();
+        query.addProperty("Type", type);
+        query.add("Data", dataObject);
+
+        return query.toString();
+    }
+}
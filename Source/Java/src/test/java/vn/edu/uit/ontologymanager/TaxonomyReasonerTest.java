@@ -0,0 +1,114 @@
+package vn.edu.uit.ontologymanager;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.semanticweb.HermiT.ReasonerFactory;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+import vn.edu.uit.ontologymanager.OntologySnapshot.EntityTable;
+
+import java.io.File;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class TaxonomyReasonerTest {
+
+    private static OntologySnapshot hermit;
+
+    private static OntologySnapshot taxonomy;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        final File file = Paths.get(TaxonomyReasonerTest.class.getClassLoader().getResource("rice.owl").toURI()).toFile();
+
+        hermit = createSnapshot(file, new ReasonerFactory());
+        taxonomy = createSnapshot(file, new TaxonomyReasonerFactory());
+    }
+
+    private static OntologySnapshot createSnapshot(final File file, final OWLReasonerFactory reasonerFactory) throws Exception {
+        final OWLOntology ontology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(file);
+        final String prefix = ontology.getOntologyID().getOntologyIRI().get() + "#";
+
+        final OWLReasoner reasoner = reasonerFactory.createReasoner(ontology);
+        reasoner.precomputeInferences();
+
+        return new HeapSnapshot.Builder(ontology, reasoner, prefix).build();
+    }
+
+    @Test
+    public void testEntities() {
+        assertTablesEqual(hermit.getClasses(), taxonomy.getClasses());
+        assertTablesEqual(hermit.getRelations(), taxonomy.getRelations());
+        assertTablesEqual(hermit.getAttributes(), taxonomy.getAttributes());
+        assertTablesEqual(hermit.getIndividuals(), taxonomy.getIndividuals());
+    }
+
+    @Test
+    public void testClasses() {
+        for (int classId = 0; classId < hermit.getClasses().size(); ++classId) {
+            final String name = hermit.getClasses().getName(classId);
+            for (final boolean direct : new boolean[]{true, false}) {
+                assertArrayEquals(name, hermit.getSuperClasses(classId, direct), taxonomy.getSuperClasses(classId, direct));
+                assertArrayEquals(name, hermit.getSubClasses(classId, direct), taxonomy.getSubClasses(classId, direct));
+                assertArrayEquals(name, hermit.getClassIndividuals(classId, direct), taxonomy.getClassIndividuals(classId, direct));
+            }
+            assertArrayEquals(name, hermit.getDomainRelations(classId), taxonomy.getDomainRelations(classId));
+            assertArrayEquals(name, hermit.getRangeRelations(classId), taxonomy.getRangeRelations(classId));
+            assertArrayEquals(name, hermit.getClassAttributes(classId), taxonomy.getClassAttributes(classId));
+        }
+    }
+
+    @Test
+    public void testRelations() {
+        for (int relationId = 0; relationId < hermit.getRelations().size(); ++relationId) {
+            final String name = hermit.getRelations().getName(relationId);
+            assertEquals(name, hermit.getInverseRelation(relationId), taxonomy.getInverseRelation(relationId));
+            for (final boolean direct : new boolean[]{true, false}) {
+                assertArrayEquals(name, hermit.getRelationDomains(relationId, direct), taxonomy.getRelationDomains(relationId, direct));
+                assertArrayEquals(name, hermit.getRelationRanges(relationId, direct), taxonomy.getRelationRanges(relationId, direct));
+            }
+        }
+    }
+
+    @Test
+    public void testAttributes() {
+        for (int attributeId = 0; attributeId < hermit.getAttributes().size(); ++attributeId) {
+            final String name = hermit.getAttributes().getName(attributeId);
+            assertEquals(name, hermit.getAttributeRange(attributeId), taxonomy.getAttributeRange(attributeId));
+            assertArrayEquals(name, hermit.getAttributeEnumeratedValues(attributeId), taxonomy.getAttributeEnumeratedValues(attributeId));
+            for (final boolean direct : new boolean[]{true, false})
+                assertArrayEquals(name, hermit.getAttributeDomains(attributeId, direct), taxonomy.getAttributeDomains(attributeId, direct));
+        }
+    }
+
+    @Test
+    public void testIndividuals() {
+        for (int individualId = 0; individualId < hermit.getIndividuals().size(); ++individualId) {
+            final String name = hermit.getIndividuals().getName(individualId);
+            for (final boolean direct : new boolean[]{true, false})
+                assertArrayEquals(name, hermit.getIndividualClasses(individualId, direct), taxonomy.getIndividualClasses(individualId, direct));
+
+            assertArrayEquals(name, hermit.getIndividualRelations(individualId), taxonomy.getIndividualRelations(individualId));
+            for (int relationId = 0; relationId < hermit.getRelations().size(); ++relationId) {
+                assertArrayEquals(name, hermit.getRelationValues(individualId, relationId), taxonomy.getRelationValues(individualId, relationId));
+                assertArrayEquals(name, hermit.getInverseRelationValues(individualId, relationId),
+                        taxonomy.getInverseRelationValues(individualId, relationId));
+            }
+
+            assertArrayEquals(name, hermit.getIndividualAttributes(individualId), taxonomy.getIndividualAttributes(individualId));
+            for (int attributeId = 0; attributeId < hermit.getAttributes().size(); ++attributeId)
+                assertArrayEquals(name, hermit.getAttributeValues(individualId, attributeId), taxonomy.getAttributeValues(individualId, attributeId));
+        }
+    }
+
+    private static void assertTablesEqual(final EntityTable expected, final EntityTable actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int id = 0; id < expected.size(); ++id) {
+            assertEquals(expected.getName(id), actual.getName(id));
+            assertEquals(expected.getLabel(id), actual.getLabel(id));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package vn.edu.uit.server;
+
+import com.google.gson.*;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final JsonArray values = new JsonArray();
+        values.add(JsonNull.INSTANCE);
+        values.add(true);
+        values.add(false);
+        values.add(0);
+        values.add(-1);
+        values.add(Long.MAX_VALUE);
+        values.add(Long.MIN_VALUE);
+        values.add(3.25);
+        values.add("Bệnh đạo ôn");
+
+        final JsonObject object = new JsonObject();
+        object.addProperty("Id", "Actara_25WG");
+        object.addProperty("Label", "Thuốc Actara 25WG");
+        object.add("Values", values);
+        object.add("Empty", new JsonObject());
+
+        // Repeated short strings are written as references, long ones in full every time.
+        final JsonArray entities = new JsonArray();
+        final char[] text = new char[500];
+        Arrays.fill(text, 'a');
+        for (int index = 0; index < 3; ++index) {
+            final JsonObject entity = new JsonObject();
+            entity.addProperty("Id", "Entity" + index);
+            entity.addProperty("Type", "Individual");
+            entity.addProperty("Text", new String(text));
+            entities.add(entity);
+        }
+        object.add("Entities", entities);
+
+        assertEquals(object, BinaryCodec.read(write(object)));
+    }
+
+    @Test
+    public void testResponse() throws IOException {
+        final Response response = new Response.Builder(ResponseType.SUCCESS).id("7").data("Total", 3).build();
+        final Gson gson = new Gson();
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        gson.toJson(response, Response.class, new BinaryCodec.BinaryJsonWriter(outputStream));
+
+        assertEquals(gson.toJsonTree(response), BinaryCodec.read(outputStream.toByteArray()));
+    }
+
+    @Test
+    public void testNesting() throws IOException {
+        JsonElement element = new JsonPrimitive(1);
+        for (int depth = 0; depth < 64; ++depth) {
+            final JsonArray array = new JsonArray();
+            array.add(element);
+            element = array;
+        }
+
+        assertEquals(element, BinaryCodec.read(write(element)));
+    }
+
+    // Deep nesting is rejected as invalid instead of overflowing the stack.
+    @Test(expected = JsonParseException.class)
+    public void testDeepNesting() {
+        final byte[] bytes = new byte[256 * 1024];
+        Arrays.fill(bytes, (byte) 8);
+        BinaryCodec.read(bytes);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testTruncated() throws IOException {
+        final byte[] bytes = write(new JsonPrimitive("truncated"));
+        BinaryCodec.read(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testTrailingData() throws IOException {
+        final byte[] bytes = write(new JsonPrimitive(1));
+        BinaryCodec.read(Arrays.copyOf(bytes, bytes.length + 1));
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testUnknownTag() {
+        BinaryCodec.read(new byte[]{(byte) 0x7f});
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testInvalidReference() {
+        BinaryCodec.read(new byte[]{6, 0});
+    }
+
+    // A length with the top bit set is negative as a long, and must not pass the bounds check.
+    @Test(expected = JsonParseException.class)
+    public void testNegativeLength() {
+        BinaryCodec.read(new byte[]{5, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1});
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testNegativeReference() {
+        BinaryCodec.read(new byte[]{8, 5, 1, 'a', 6, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1, 10});
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testVarintTooLong() {
+        BinaryCodec.read(new byte[]{3, -1, -1, -1, -1, -1, -1, -1, -1, -1, 2});
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testVarintNotMinimal() {
+        BinaryCodec.read(new byte[]{3, -126, 0});
+    }
+
+    @Test
+    public void testVarintLimits() throws IOException {
+        for (final long value : new long[]{0, 63, 64, -65, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            final JsonPrimitive element = new JsonPrimitive(value);
+            assertEquals(element, BinaryCodec.read(write(element)));
+        }
+    }
+
+    private static byte[] write(final JsonElement element) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final BinaryCodec.BinaryJsonWriter writer = new BinaryCodec.BinaryJsonWriter(outputStream);
+        writer.setSerializeNulls(true);
+        new Gson().toJson(element, writer);
+        writer.flush();
+
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,73 @@
+package vn.edu.uit.server;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CompressionTest {
+
+    private static final int MAX_LENGTH = Server.DEFAULT_MAX_FRAME_LENGTH;
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < 2000; ++index)
+            builder.append("{\"Id\":\"Individual").append(index).append("\",\"Label\":\"Bệnh đạo ôn\",\"Type\":\"Individual\"},");
+        final byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+        final byte[] compressed = Compression.deflate(bytes);
+        assertTrue(compressed.length < bytes.length / 4);
+        assertArrayEquals(bytes, Compression.inflate(compressed, MAX_LENGTH));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertArrayEquals(new byte[0], Compression.inflate(Compression.deflate(new byte[0]), MAX_LENGTH));
+    }
+
+    // Each thread reuses its deflater and inflater, so consecutive calls must not affect each other.
+    @Test
+    public void testReuse() throws IOException {
+        final Random random = new Random(42);
+        for (int round = 0; round < 10; ++round) {
+            final byte[] bytes = new byte[random.nextInt(100000)];
+            random.nextBytes(bytes);
+            assertArrayEquals(bytes, Compression.inflate(Compression.deflate(bytes), MAX_LENGTH));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        final byte[] compressed = Compression.deflate(new byte[100000]);
+        Compression.inflate(Arrays.copyOf(compressed, compressed.length / 2), MAX_LENGTH);
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalid() throws IOException {
+        Compression.inflate(new byte[]{(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff}, MAX_LENGTH);
+    }
+
+    // A small frame that expands beyond the limit is rejected rather than inflated in full.
+    @Test(expected = IOException.class)
+    public void testExpansionLimit() throws IOException {
+        Compression.inflate(Compression.deflate(new byte[MAX_LENGTH + 1]), MAX_LENGTH);
+    }
+
+    @Test
+    public void testExactLimit() throws IOException {
+        final byte[] bytes = new byte[100000];
+        assertArrayEquals(bytes, Compression.inflate(Compression.deflate(bytes), bytes.length));
+    }
+
+    // The output buffer is sized from the limit, so a large limit does not overflow it.
+    @Test
+    public void testLargeLimit() throws IOException {
+        final byte[] bytes = "Bệnh đạo ôn".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(bytes, Compression.inflate(Compression.deflate(bytes), Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,75 @@
+package vn.edu.uit.server;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+import static vn.edu.uit.server.Frame.*;
+
+public class FrameTest {
+
+    private static final int MAX_LENGTH = 1024;
+
+    @Test
+    public void testPlainHeader() throws IOException {
+        final Frame frame = new Frame(0, new byte[300]);
+        final byte[] header = frame.encodeHeader();
+
+        assertEquals(HEADER_LENGTH, header.length);
+        assertFalse(Frame.isExtended(header));
+        assertEquals(0, Frame.decodeFlags(header));
+        assertEquals(300, Frame.decodeLength(header, MAX_LENGTH));
+    }
+
+    @Test
+    public void testExtendedHeader() throws IOException {
+        final int flags = FLAG_BINARY | FLAG_ACCEPTS_COMPRESSION | FLAG_END;
+        final Frame frame = new Frame(flags, new byte[700]);
+        final byte[] header = frame.encodeHeader();
+
+        assertEquals(EXTENDED_HEADER_LENGTH, header.length);
+        assertTrue(Frame.isExtended(header));
+        assertEquals(flags, Frame.decodeFlags(header));
+        assertEquals(700, Frame.decodeLength(header, MAX_LENGTH));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLengthAboveMaximum() throws IOException {
+        Frame.decodeLength(new Frame(0, new byte[MAX_LENGTH + 1]).encodeHeader(), MAX_LENGTH);
+    }
+
+    @Test(expected = IOException.class)
+    public void testNegativeLength() throws IOException {
+        Frame.decodeLength(new byte[]{0, 0, 0, 0x7f, 0, 0, 0, (byte) 0x80}, MAX_LENGTH);
+    }
+
+    @Test
+    public void testReadFrames() throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Server.writeFrame(outputStream, new Frame(0, "plain".getBytes(StandardCharsets.UTF_8)));
+        Server.writeFrame(outputStream, new Frame(FLAG_BINARY, "binary".getBytes(StandardCharsets.UTF_8)));
+
+        final DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        final Frame plain = Server.readFrame(inputStream, MAX_LENGTH);
+        assertEquals(0, plain.flags);
+        assertEquals("plain", new String(plain.payload, StandardCharsets.UTF_8));
+
+        final Frame binary = Server.readFrame(inputStream, MAX_LENGTH);
+        assertEquals(FLAG_BINARY, binary.flags);
+        assertEquals("binary", new String(binary.payload, StandardCharsets.UTF_8));
+
+        assertNull(Server.readFrame(inputStream, MAX_LENGTH));
+    }
+
+    // A header alone announcing a huge frame is rejected without reading or allocating the body.
+    @Test(expected = IOException.class)
+    public void testReadFrameAboveMaximum() throws IOException {
+        final byte[] header = {(byte) 0xff, (byte) 0xff, (byte) 0xff, 0x7f};
+        Server.readFrame(new DataInputStream(new ByteArrayInputStream(header)), MAX_LENGTH);
+    }
+}
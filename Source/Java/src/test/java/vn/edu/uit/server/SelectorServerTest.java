@@ -0,0 +1,276 @@
+package vn.edu.uit.server;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import vn.edu.uit.ontologymanager.OntologyManager;
+import vn.edu.uit.ontologymanager.TaxonomyReasonerFactory;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static vn.edu.uit.server.Frame.FLAG_ACCEPTS_COMPRESSION;
+import static vn.edu.uit.server.Frame.FLAG_BINARY;
+import static vn.edu.uit.server.Frame.FLAG_CHUNK;
+import static vn.edu.uit.server.Frame.FLAG_COMPRESSED;
+import static vn.edu.uit.server.Frame.FLAG_END;
+
+public class SelectorServerTest {
+
+    private static final int MAX_FRAME_LENGTH = 64 * 1024;
+
+    private static final int CLIENTS = 4;
+
+    private static final int ROUNDS = 25;
+
+    private static final List<String> MESSAGES = Arrays.asList(
+            "{\"Type\": \"GetRelations\"}",
+            "{\"Type\": \"GetClass\", \"Data\": {\"Class\": \"Benh\"}}",
+            "{\"Type\": \"GetSubClasses\", \"Data\": {\"Class\": \"TacNhanGayHai\", \"GetSubClassType\": \"GetAll\"}}",
+            "{\"Type\": \"GetRelationValues\", \"Data\": {\"Individual\": \"Actara_25WG\"}}",
+            "{\"Type\": \"GetComment\", \"Data\": {\"Object\": \"benhSuDungThuoc\"}}",
+            "{\"Type\": \"GetExpressionSubClasses\", \"Data\": {\"Expression\": \"Benh or Sau\", \"GetSubClassType\": \"GetAll\"}}");
+
+    private static OntologyManager manager;
+
+    private static SelectorServer keepAliveServer;
+
+    private static int keepAlivePort;
+
+    private static SelectorServer oneShotServer;
+
+    private static int oneShotPort;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        final File file = Paths.get(SelectorServerTest.class.getClassLoader().getResource("rice.owl").toURI()).toFile();
+        manager = new OntologyManager(file, null, new TaxonomyReasonerFactory(), 2, false);
+
+        keepAlivePort = findFreePort();
+        keepAliveServer = new SelectorServer.Builder(manager, keepAlivePort).workers(4).keepAlive(true)
+                .streamChunkSize(16).maxFrameLength(MAX_FRAME_LENGTH).build();
+        start(keepAliveServer, keepAlivePort);
+
+        oneShotPort = findFreePort();
+        oneShotServer = new SelectorServer.Builder(manager, oneShotPort).workers(4).streamChunkSize(1).build();
+        start(oneShotServer, oneShotPort);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        keepAliveServer.stop();
+        oneShotServer.stop();
+    }
+
+    // Pipelined responses may come back in any order and are matched to their requests by id.
+    @Test
+    public void testPipelinedRequests() throws IOException {
+        final Map<String, String> expected = new HashMap<>();
+        try (final Socket socket = new Socket("localhost", keepAlivePort)) {
+            final OutputStream outputStream = socket.getOutputStream();
+            for (int round = 0; round < 5; ++round)
+                for (int index = 0; index < MESSAGES.size(); ++index) {
+                    final String id = round + "-" + index;
+                    final String message = withId(MESSAGES.get(index), id);
+                    expected.put(id, manager.process(message));
+                    Server.writeFrame(outputStream, new Frame(0, message.getBytes(StandardCharsets.UTF_8)));
+                }
+
+            final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final Map<String, String> actual = new HashMap<>();
+            for (int count = 0; count < expected.size(); ++count) {
+                final String response = readString(inputStream);
+                actual.put(new JsonParser().parse(response).getAsJsonObject().get("Id").getAsString(), response);
+            }
+
+            assertEquals(expected, actual);
+        }
+    }
+
+    // Requests without an id are answered in the order they were sent.
+    @Test
+    public void testOrderedRequests() throws IOException {
+        try (final Socket socket = new Socket("localhost", keepAlivePort)) {
+            final OutputStream outputStream = socket.getOutputStream();
+            for (final String message : MESSAGES)
+                Server.writeFrame(outputStream, new Frame(0, message.getBytes(StandardCharsets.UTF_8)));
+
+            final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            for (final String message : MESSAGES) assertEquals(manager.process(message), readString(inputStream));
+        }
+    }
+
+    // A one-shot connection is closed once the request is answered, which must not happen before the end frame.
+    // Several clients stream at once, so workers and the selector thread interleave in many ways.
+    @Test
+    public void testStreamedResponse() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int client = 0; client < CLIENTS; ++client)
+                futures.add(executor.submit(() -> {
+                    streamIndividuals();
+                    return null;
+                }));
+
+            for (final Future<?> future : futures) future.get(2, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void streamIndividuals() throws IOException {
+        final int total = manager.process("{\"Type\": \"GetIndividuals\"}").split("\"Type\":\"Individual\"").length - 1;
+
+        for (int round = 0; round < ROUNDS; ++round)
+            try (final Socket socket = new Socket("localhost", oneShotPort)) {
+                final String message = "{\"Type\": \"GetIndividuals\", \"Stream\": true}";
+                Server.writeFrame(socket.getOutputStream(), new Frame(0, message.getBytes(StandardCharsets.UTF_8)));
+
+                final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                int individuals = 0;
+                Frame frame;
+                while ((frame = Server.readFrame(inputStream, Integer.MAX_VALUE)) != null && frame.hasFlag(FLAG_CHUNK)) {
+                    final JsonObject chunk = parse(frame);
+                    assertEquals("Success", chunk.get("Status").getAsString());
+                    individuals += chunk.getAsJsonObject("Data").getAsJsonArray("Individuals").size();
+                }
+
+                assertNotNull("End frame is missing.", frame);
+                assertTrue(frame.hasFlag(FLAG_END));
+                assertEquals(total, parse(frame).getAsJsonObject("Data").get("Total").getAsInt());
+                assertEquals(total, individuals);
+                assertNull(Server.readFrame(inputStream, Integer.MAX_VALUE));
+            }
+    }
+
+    // A broken request is answered with an error and the connection keeps serving.
+    @Test
+    public void testInvalidRequest() throws IOException {
+        try (final Socket socket = new Socket("localhost", keepAlivePort)) {
+            final OutputStream outputStream = socket.getOutputStream();
+            Server.writeFrame(outputStream, new Frame(0, "{\"Type\": ".getBytes(StandardCharsets.UTF_8)));
+            Server.writeFrame(outputStream, new Frame(0, MESSAGES.get(0).getBytes(StandardCharsets.UTF_8)));
+
+            final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            assertTrue(readString(inputStream).startsWith("{\"Status\":\"Error\""));
+            assertEquals(manager.process(MESSAGES.get(0)), readString(inputStream));
+        }
+    }
+
+    // A compressed request is inflated, and a large response is compressed for a client that accepts it.
+    @Test
+    public void testCompression() throws IOException {
+        final String message = "{\"Type\": \"GetIndividuals\"}";
+        try (final Socket socket = new Socket("localhost", keepAlivePort)) {
+            final byte[] compressed = Compression.deflate(message.getBytes(StandardCharsets.UTF_8));
+            Server.writeFrame(socket.getOutputStream(), new Frame(FLAG_COMPRESSED | FLAG_ACCEPTS_COMPRESSION, compressed));
+
+            final Frame frame = Server.readFrame(new DataInputStream(socket.getInputStream()), Integer.MAX_VALUE);
+            assertNotNull(frame);
+            assertTrue(frame.hasFlag(FLAG_COMPRESSED));
+            assertEquals(manager.process(message), new String(Compression.inflate(frame.payload, Integer.MAX_VALUE), StandardCharsets.UTF_8));
+        }
+    }
+
+    // A deeply nested binary request is answered with an error instead of overflowing the stack.
+    @Test
+    public void testDeeplyNestedBinaryRequest() throws IOException {
+        try (final Socket socket = new Socket("localhost", keepAlivePort)) {
+            final byte[] nested = new byte[32 * 1024];
+            Arrays.fill(nested, (byte) 8);
+            final OutputStream outputStream = socket.getOutputStream();
+            Server.writeFrame(outputStream, new Frame(FLAG_BINARY, nested));
+            Server.writeFrame(outputStream, new Frame(0, MESSAGES.get(0).getBytes(StandardCharsets.UTF_8)));
+
+            final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final Frame error = Server.readFrame(inputStream, Integer.MAX_VALUE);
+            assertNotNull(error);
+            assertEquals("Error", BinaryCodec.read(error.payload).getAsJsonObject().get("Status").getAsString());
+            assertEquals(manager.process(MESSAGES.get(0)), readString(inputStream));
+        }
+    }
+
+    // A frame above the maximum length closes its connection without affecting others.
+    @Test
+    public void testFrameAboveMaximum() throws IOException {
+        try (final Socket socket = new Socket("localhost", keepAlivePort)) {
+            final OutputStream outputStream = socket.getOutputStream();
+            outputStream.write(new Frame(0, new byte[MAX_FRAME_LENGTH + 1]).encodeHeader());
+            outputStream.flush();
+
+            assertNull(Server.readFrame(new DataInputStream(socket.getInputStream()), Integer.MAX_VALUE));
+        }
+
+        testOrderedRequests();
+    }
+
+    // A compressed frame is held to the maximum length once inflated, and is answered with an error.
+    @Test
+    public void testInflatedAboveMaximum() throws IOException {
+        try (final Socket socket = new Socket("localhost", keepAlivePort)) {
+            final OutputStream outputStream = socket.getOutputStream();
+            Server.writeFrame(outputStream, new Frame(FLAG_COMPRESSED, Compression.deflate(new byte[MAX_FRAME_LENGTH + 1])));
+            Server.writeFrame(outputStream, new Frame(0, MESSAGES.get(0).getBytes(StandardCharsets.UTF_8)));
+
+            final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            assertTrue(readString(inputStream).startsWith("{\"Status\":\"Error\""));
+            assertEquals(manager.process(MESSAGES.get(0)), readString(inputStream));
+        }
+    }
+
+    private static String withId(final String message, final String id) {
+        return "{\"Id\": \"" + id + "\", " + message.substring(1);
+    }
+
+    private static String readString(final DataInputStream inputStream) throws IOException {
+        final Frame frame = Server.readFrame(inputStream, Integer.MAX_VALUE);
+        assertNotNull(frame);
+
+        return new String(frame.payload, StandardCharsets.UTF_8);
+    }
+
+    private static JsonObject parse(final Frame frame) {
+        return new JsonParser().parse(new String(frame.payload, StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    private static int findFreePort() throws IOException {
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void start(final SelectorServer server, final int port) throws InterruptedException {
+        final Thread thread = new Thread(() -> {
+            try {
+                server.run();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        // The server is ready once it accepts connections.
+        for (int attempt = 0; attempt < 100; ++attempt) {
+            try {
+                new Socket("localhost", port).close();
+                return;
+            } catch (final IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        fail("Server does not start.");
+    }
+}
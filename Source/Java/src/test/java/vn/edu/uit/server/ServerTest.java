@@ -0,0 +1,151 @@
+package vn.edu.uit.server;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import vn.edu.uit.ontologymanager.OntologyManager;
+import vn.edu.uit.ontologymanager.TaxonomyReasonerFactory;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+import static vn.edu.uit.server.Frame.FLAG_BINARY;
+
+public class ServerTest {
+
+    private static final String MESSAGE = "{\"Type\": \"GetClass\", \"Data\": {\"Class\": \"Benh\"}}";
+
+    // While set, the server cannot get a manager, so every request fails while it is handled.
+    private static final AtomicBoolean failing = new AtomicBoolean();
+
+    private static OntologyManager manager;
+
+    private static Server server;
+
+    private static int port;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        final File file = Paths.get(ServerTest.class.getClassLoader().getResource("rice.owl").toURI()).toFile();
+        manager = new OntologyManager(file, null, new TaxonomyReasonerFactory(), 2, false);
+
+        port = findFreePort();
+        server = new Server.Builder(() -> {
+            if (failing.get()) throw new IllegalStateException("Manager is not available.");
+            return manager;
+        }, port).workers(2).keepAlive(true).build();
+        start(server, port);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testRequests() throws IOException {
+        try (final Socket socket = new Socket("localhost", port)) {
+            final OutputStream outputStream = socket.getOutputStream();
+            Server.writeFrame(outputStream, new Frame(0, MESSAGE.getBytes(StandardCharsets.UTF_8)));
+            Server.writeFrame(outputStream, new Frame(0, withId(MESSAGE, "1").getBytes(StandardCharsets.UTF_8)));
+
+            final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            assertEquals(manager.process(MESSAGE), readString(inputStream));
+            assertEquals(manager.process(withId(MESSAGE, "1")), readString(inputStream));
+        }
+    }
+
+    // A request that fails while it is handled is answered with an error, with its id if it has one, and the
+    // connection keeps serving.
+    @Test
+    public void testFailingRequests() throws IOException {
+        try (final Socket socket = new Socket("localhost", port)) {
+            final OutputStream outputStream = socket.getOutputStream();
+            final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            failing.set(true);
+            try {
+                Server.writeFrame(outputStream, new Frame(0, MESSAGE.getBytes(StandardCharsets.UTF_8)));
+                assertEquals("Error", parse(readString(inputStream)).get("Status").getAsString());
+
+                Server.writeFrame(outputStream, new Frame(0, withId(MESSAGE, "1").getBytes(StandardCharsets.UTF_8)));
+                final JsonObject error = parse(readString(inputStream));
+                assertEquals("Error", error.get("Status").getAsString());
+                assertEquals("1", error.get("Id").getAsString());
+            } finally {
+                failing.set(false);
+            }
+
+            Server.writeFrame(outputStream, new Frame(0, MESSAGE.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(manager.process(MESSAGE), readString(inputStream));
+        }
+    }
+
+    // A broken binary request is answered with an error whatever it breaks in the decoder.
+    @Test
+    public void testBrokenBinaryRequest() throws IOException {
+        try (final Socket socket = new Socket("localhost", port)) {
+            final byte[] payload = {5, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1};
+            final OutputStream outputStream = socket.getOutputStream();
+            Server.writeFrame(outputStream, new Frame(FLAG_BINARY, payload));
+            Server.writeFrame(outputStream, new Frame(0, MESSAGE.getBytes(StandardCharsets.UTF_8)));
+
+            final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final Frame error = Server.readFrame(inputStream, Integer.MAX_VALUE);
+            assertNotNull(error);
+            assertEquals("Error", BinaryCodec.read(error.payload).getAsJsonObject().get("Status").getAsString());
+            assertEquals(manager.process(MESSAGE), readString(inputStream));
+        }
+    }
+
+    private static String withId(final String message, final String id) {
+        return "{\"Id\": \"" + id + "\", " + message.substring(1);
+    }
+
+    private static String readString(final DataInputStream inputStream) throws IOException {
+        final Frame frame = Server.readFrame(inputStream, Integer.MAX_VALUE);
+        assertNotNull(frame);
+
+        return new String(frame.payload, StandardCharsets.UTF_8);
+    }
+
+    private static JsonObject parse(final String response) {
+        return new JsonParser().parse(response).getAsJsonObject();
+    }
+
+    private static int findFreePort() throws IOException {
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void start(final Server server, final int port) throws InterruptedException {
+        final Thread thread = new Thread(() -> {
+            try {
+                server.run();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        // The server is ready once it accepts connections.
+        for (int attempt = 0; attempt < 100; ++attempt) {
+            try {
+                new Socket("localhost", port).close();
+                return;
+            } catch (final IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        fail("Server does not start.");
+    }
+}